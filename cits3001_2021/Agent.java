@@ -1,5 +1,6 @@
 package cits3001_2021;
 
+import java.util.SplittableRandom;
 import javax.naming.OperationNotSupportedException;
 
 /**
@@ -39,6 +40,19 @@ public interface Agent {
    **/
   public void newGame(int numPlayers, int playerIndex, int[] spies);
 
+  /**
+   * initialises a new game, giving the agent its own random stream for the game.
+   * Agents that make random choices should draw them from this stream so that a game can be replayed from its seed.
+   *
+   * @param numPlayers  the number of players in the game.
+   * @param playerIndex the players index in the game.
+   * @param spies,      the index of all the spies in the game, if this agent is a spy (i.e. playerIndex is an element of spies)
+   * @param random      the random stream split from the game's seed for this agent.
+   **/
+  public default void newGame(int numPlayers, int playerIndex, int[] spies, SplittableRandom random){
+    newGame(numPlayers, playerIndex, spies);
+  }
+
   /**
    * This method is called when the agent is required to lead (propose) a mission
    *
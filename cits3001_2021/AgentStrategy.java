@@ -0,0 +1,81 @@
+package cits3001_2021;
+
+import java.util.SplittableRandom;
+
+/**
+ * The decisions of an agent, kept apart from what it knows about the game. Everything a strategy remembers about a game
+ * is kept in a state object of type S, created by newState and passed to every call, and the strategy itself has no
+ * mutable fields. One strategy instance can then play any number of games at once, on any number of threads, as long
+ * as each seat of each game has its own state; the state is all a game costs, a few hundred bytes for the agents in
+ * this project.
+ *
+ * The methods are those of Agent with the state first. StrategyAgent pairs a strategy with a state to make an Agent,
+ * and Baerule, BasicRebel, Agent_22511218 and RandomAgent are all StrategyAgents of their own shared STRATEGY.
+ *
+ * @param <S> The per-game state of the strategy.
+ */
+public interface AgentStrategy<S> {
+
+    /**
+     * @return A state for a new seat, ready for newGame. A state can be reused for any number of games in turn.
+     */
+    S newState();
+
+
+    /**
+     * Starts a new game, dropping everything the state knew about the previous one.
+     * @param random The game's random stream for this seat, or null to keep using the state's own stream.
+     * @see Agent#newGame(int, int, int[], SplittableRandom)
+     */
+    void newGame(S state, int numPlayers, int playerIndex, int[] spies, SplittableRandom random);
+
+
+    /**
+     * @see Agent#proposeMission(int, int)
+     */
+    int[] proposeMission(S state, int teamsize, int failsRequired);
+
+
+    /**
+     * @see Agent#vote(int[], int)
+     */
+    boolean vote(S state, int[] mission, int leader);
+
+
+    /**
+     * @see Agent#voteOutcome(int[], int, boolean[])
+     */
+    default void voteOutcome(S state, int[] mission, int leader, boolean[] votes) {}
+
+
+    /**
+     * @see Agent#betray(int[], int)
+     */
+    boolean betray(S state, int[] mission, int leader);
+
+
+    /**
+     * @see Agent#missionOutcome(int[], int, int, boolean)
+     */
+    default void missionOutcome(S state, int[] mission, int leader, int numFails, boolean missionSuccess) {}
+
+
+    /**
+     * @see Agent#roundOutcome(int, int)
+     */
+    default void roundOutcome(S state, int roundsComplete, int roundsLost) {}
+
+
+    /**
+     * @see Agent#gameOutcome(int, int[])
+     */
+    default void gameOutcome(S state, int roundsLost, int[] spies) {}
+
+
+    /**
+     * @see Agent#getSuspectedSpies()
+     */
+    default int[] getSuspectedSpies(S state) {
+        return new int[0];
+    }
+}
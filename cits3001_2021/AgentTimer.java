@@ -0,0 +1,147 @@
+package cits3001_2021;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Times every call Game makes on its agents, keeping a latency histogram for each kind of agent and each method, and
+ * optionally a time budget per method. When an agent goes over the budget on a decision (proposeMission, vote or
+ * betray), Game throws its answer away and uses the backup RandomAgent's move instead, the same way it handles an
+ * invalid team.
+ *
+ * Agents are grouped by class, so the calls of every Baerule across a tournament end up in the same histograms. Not
+ * thread-safe; Tournament gives each of its tasks its own copy and adds them together.
+ */
+public class AgentTimer {
+
+    /**
+     * The Agent methods Game calls.
+     */
+    public enum Call {
+        NEW_GAME, PROPOSE_MISSION, VOTE, VOTE_OUTCOME, BETRAY, MISSION_OUTCOME, ROUND_OUTCOME, GAME_OUTCOME
+    }
+
+    private static final Call[] CALLS = Call.values();
+
+    private final long[] budgets = new long[CALLS.length];
+    private final Map<Class<?>, LatencyHistogram[]> histograms = new HashMap<>();
+    private final Map<Class<?>, long[]> overruns = new HashMap<>();
+
+
+    /**
+     * Creates a timer without any budgets; calls are only measured.
+     */
+    public AgentTimer() {
+        Arrays.fill(budgets, Long.MAX_VALUE);
+    }
+
+
+    /**
+     * Sets how long an agent may take for a call before it counts as an overrun.
+     * @param call  The method the budget is for.
+     * @param nanos The budget in nanoseconds.
+     */
+    public void setBudget(Call call, long nanos) {
+        budgets[call.ordinal()] = nanos;
+    }
+
+
+    public long getBudget(Call call) {
+        return budgets[call.ordinal()];
+    }
+
+
+    /**
+     * Records a call made on an agent.
+     * @param agent The agent that was called.
+     * @param call  The method that was called.
+     * @param nanos How long the call took.
+     * @return True iff the call went over its budget.
+     */
+    boolean record(Agent agent, Call call, long nanos) {
+        histograms(agent.getClass())[call.ordinal()].record(nanos);
+        if (nanos <= budgets[call.ordinal()]) return false;
+        overruns.get(agent.getClass())[call.ordinal()]++;
+        return true;
+    }
+
+
+    /**
+     * Gets the histograms of an agent class, creating them the first time the class is seen.
+     */
+    private LatencyHistogram[] histograms(Class<?> agent) {
+        LatencyHistogram[] calls = histograms.get(agent);
+        if (calls == null) {
+            calls = new LatencyHistogram[CALLS.length];
+            for (int i = 0; i < calls.length; i++) calls[i] = new LatencyHistogram();
+            histograms.put(agent, calls);
+            overruns.put(agent, new long[CALLS.length]);
+        }
+        return calls;
+    }
+
+
+    /**
+     * @return A timer with the same budgets and nothing recorded.
+     */
+    public AgentTimer emptyCopy() {
+        AgentTimer copy = new AgentTimer();
+        System.arraycopy(budgets, 0, copy.budgets, 0, budgets.length);
+        return copy;
+    }
+
+
+    /**
+     * Adds everything another timer recorded into this one.
+     */
+    public void add(AgentTimer other) {
+        for (Map.Entry<Class<?>, LatencyHistogram[]> entry : other.histograms.entrySet()) {
+            LatencyHistogram[] calls = histograms(entry.getKey());
+            long[] over = overruns.get(entry.getKey());
+            long[] otherOver = other.overruns.get(entry.getKey());
+            for (int i = 0; i < CALLS.length; i++) {
+                calls[i].add(entry.getValue()[i]);
+                over[i] += otherOver[i];
+            }
+        }
+    }
+
+
+    /**
+     * @return The latencies of a method for every agent of the given class, or null if none were called.
+     */
+    public LatencyHistogram getHistogram(Class<? extends Agent> agent, Call call) {
+        LatencyHistogram[] calls = histograms.get(agent);
+        return calls == null ? null : calls[call.ordinal()];
+    }
+
+
+    /**
+     * @return How many calls of a method went over budget for agents of the given class.
+     */
+    public long getOverruns(Class<? extends Agent> agent, Call call) {
+        long[] over = overruns.get(agent);
+        return over == null ? 0 : over[call.ordinal()];
+    }
+
+
+    /**
+     * @return A table of the latencies of every agent and method that was called.
+     */
+    @Override
+    public String toString() {
+        StringBuilder table = new StringBuilder(String.format("%-16s %-16s %10s %10s %10s %10s %12s %9s%n",
+                "agent", "call", "count", "mean ns", "p50 ns", "p99 ns", "max ns", "overruns"));
+        for (Map.Entry<Class<?>, LatencyHistogram[]> entry : histograms.entrySet()) {
+            for (Call call : CALLS) {
+                LatencyHistogram h = entry.getValue()[call.ordinal()];
+                if (h.getCount() == 0) continue;
+                table.append(String.format("%-16s %-16s %10d %10.0f %10d %10d %12d %9d%n",
+                        entry.getKey().getSimpleName(), call, h.getCount(), h.getMean(), h.getPercentile(50),
+                        h.getPercentile(99), h.getMax(), overruns.get(entry.getKey())[call.ordinal()]));
+            }
+        }
+        return table.toString();
+    }
+}
@@ -0,0 +1,54 @@
+package cits3001_2021;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures how many bytes are allocated per game, comparing a new Game for every game against a single Game arena
+ * that is replayed with play. The same agents are reused in both cases so only the engine's allocations differ.
+ *
+ * Relies on the HotSpot extension of ThreadMXBean to read the bytes allocated by the current thread.
+ */
+public class AllocationProfile {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+
+    /**
+     * Plays the games and returns the average bytes allocated per game.
+     * @param agents Agents reused for every game.
+     * @param games  Number of games measured.
+     * @param arena  If true a single Game is replayed, otherwise a new Game is created for every game.
+     * @return Average number of bytes allocated by one game.
+     */
+    private static double bytesPerGame(Agent[] agents, int games, boolean arena) {
+        long thread = Thread.currentThread().getId();
+        Game game = new Game(agents.length);
+        long before = THREADS.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < games; i++) {
+            if (arena) game.play(agents, i);
+            else new Game(agents, i);
+        }
+        return (THREADS.getThreadAllocatedBytes(thread) - before) / (double) games;
+    }
+
+
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        Agent[] agents = {Baerule.init(),
+                BasicRebel.init(),
+                BasicRebel.init(),
+                BasicRebel.init(),
+                BasicRebel.init()};
+
+        //Warm up both paths so the measurement is not polluted by class loading and compilation
+        bytesPerGame(agents, games / 10, false);
+        bytesPerGame(agents, games / 10, true);
+
+        double fresh = bytesPerGame(agents, games, false);
+        double arena = bytesPerGame(agents, games, true);
+        System.out.printf("New Game per game: %.0f bytes/game%n", fresh);
+        System.out.printf("Reused Game arena: %.0f bytes/game%n", arena);
+        System.out.printf("Engine allocation saved: %.0f bytes/game (%.1f%%)%n", fresh - arena, 100 * (fresh - arena) / fresh);
+    }
+}
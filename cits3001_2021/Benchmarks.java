@@ -0,0 +1,174 @@
+package cits3001_2021;
+
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+
+/**
+ * Micro benchmarks for the agents' decisions and for whole games, run the way JMH runs them: a few warm-up iterations
+ * that are thrown away, then timed iterations reported as the mean and a 99.9% error margin. Results are written to a
+ * volatile field so the JIT cannot remove the work being timed.
+ *
+ * Per-call latency is measured for proposeMission, vote, betray and missionOutcome of every agent in a 5 player game,
+ * and game throughput for 5 to 10 players. Pass a regex as the first argument to only run matching benchmarks, e.g.
+ * "Baerule" or "game".
+ */
+public class Benchmarks {
+
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int ITERATIONS = 10;
+    private static final long ITERATION_NANOS = 200_000_000L;
+    private static final double Z_999 = 3.29; //Two-sided 99.9% normal quantile
+
+    private static final int[] TEAM = {0, 1, 2}; //Round 2 team of a 5 player game, with the agent on it
+    private static final int[] RESISTANCE = {};
+    private static final int[] SPIES = {0, 3}; //Spies when the agent itself is one
+
+    private static volatile long sink;
+
+
+    /**
+     * A benchmarked piece of work. Every invocation runs a fixed number of operations after an untimed setup.
+     */
+    private interface Invocation {
+        void setup();
+
+        long run();
+    }
+
+
+    /**
+     * Times the invocation and prints the average time per operation.
+     * @param name Name the result is printed under.
+     * @param ops  Number of operations a single run performs.
+     * @param inv  The work to time.
+     */
+    private static void bench(String name, int ops, Invocation inv) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) iteration(ops, inv);
+        double[] scores = new double[ITERATIONS];
+        double mean = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            scores[i] = iteration(ops, inv);
+            mean += scores[i] / ITERATIONS;
+        }
+        double var = 0;
+        for (double score : scores) var += (score - mean) * (score - mean) / (ITERATIONS - 1);
+        double error = Z_999 * Math.sqrt(var / ITERATIONS);
+        System.out.printf("%-45s %12.1f +- %8.1f ns/op%n", name, mean, error);
+    }
+
+
+    /**
+     * Runs invocations for one iteration's worth of time, only timing the runs.
+     * @return Average nanoseconds per operation over the iteration.
+     */
+    private static double iteration(int ops, Invocation inv) {
+        long timed = 0, count = 0, result = 0;
+        long end = System.nanoTime() + ITERATION_NANOS;
+        while (System.nanoTime() < end) {
+            inv.setup();
+            long start = System.nanoTime();
+            result += inv.run();
+            timed += System.nanoTime() - start;
+            count += ops;
+        }
+        sink = result;
+        return (double) timed / count;
+    }
+
+
+    /**
+     * Benchmarks the four decisions of a single agent.
+     */
+    private static void agent(String name, Supplier<Agent> create, String filter) {
+        Agent agent = create.get();
+        SplittableRandom random = new SplittableRandom(1);
+
+        if ((name + ".proposeMission").matches(filter)) {
+            bench(name + ".proposeMission", 100, new Invocation() {
+                public void setup() { agent.newGame(5, 0, RESISTANCE, random.split()); }
+
+                public long run() {
+                    long r = 0;
+                    for (int i = 0; i < 100; i++) r += agent.proposeMission(3, 1)[1];
+                    return r;
+                }
+            });
+        }
+        if ((name + ".vote").matches(filter)) {
+            bench(name + ".vote", 100, new Invocation() {
+                public void setup() { agent.newGame(5, 0, RESISTANCE, random.split()); }
+
+                public long run() {
+                    long r = 0;
+                    for (int i = 0; i < 100; i++) if (agent.vote(TEAM, 1)) r++;
+                    return r;
+                }
+            });
+        }
+        if ((name + ".betray").matches(filter)) {
+            bench(name + ".betray", 100, new Invocation() {
+                public void setup() { agent.newGame(5, 0, SPIES, random.split()); }
+
+                public long run() {
+                    long r = 0;
+                    for (int i = 0; i < 100; i++) if (agent.betray(TEAM, 1)) r++;
+                    return r;
+                }
+            });
+        }
+        if ((name + ".missionOutcome").matches(filter)) {
+            //A fresh game for every 5 outcomes, so the suspicion values do not saturate
+            bench(name + ".missionOutcome", 5, new Invocation() {
+                public void setup() { agent.newGame(5, 0, RESISTANCE, random.split()); }
+
+                public long run() {
+                    for (int i = 0; i < 5; i++) agent.missionOutcome(TEAM, 1 + i % 4, i % 2, i % 2 == 0);
+                    return agent.getSuspectedSpies().length;
+                }
+            });
+        }
+    }
+
+
+    /**
+     * A mixed line-up of every agent for an n player game.
+     */
+    private static Agent[] lineUp(int n) {
+        Agent[] agents = new Agent[n];
+        for (int i = 0; i < n; i++) {
+            agents[i] = switch (i % 4) {
+                case 0 -> Baerule.init();
+                case 1 -> BasicRebel.init();
+                case 2 -> Agent_22511218.init();
+                default -> RandomAgent.init();
+            };
+        }
+        return agents;
+    }
+
+
+    public static void main(String[] args) {
+        String filter = args.length > 0 ? ".*(" + args[0] + ").*" : ".*";
+
+        agent("Baerule", Baerule::init, filter);
+        agent("BasicRebel", BasicRebel::init, filter);
+        agent("Agent_22511218", Agent_22511218::init, filter);
+        agent("RandomAgent", RandomAgent::init, filter);
+
+        for (int n = 5; n <= 10; n++) {
+            String name = "game.players" + n;
+            if (!name.matches(filter)) continue;
+            Agent[] agents = lineUp(n);
+            Game arena = new Game(n);
+            long[] seed = {0};
+            bench(name, 1, new Invocation() {
+                public void setup() {}
+
+                public long run() {
+                    arena.play(agents, seed[0]++);
+                    return arena.getScore();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package cits3001_2021;
+
+/**
+ * Helper functions for sets of players stored as bitmasks, where bit i is set iff player i is in the set. A game has
+ * at most 10 players, so teams, votes and spies all fit in an int, and membership, unions and counting are single
+ * instructions.
+ */
+public final class Bits {
+
+    private Bits() {}
+
+
+    /**
+     * @return The bitmask of the given players.
+     */
+    public static int mask(int[] players) {
+        int mask = 0;
+        for (int player : players) mask |= 1 << player;
+        return mask;
+    }
+
+
+    /**
+     * @return The bitmask of the players whose flag is true, e.g. the players that voted for a mission.
+     */
+    public static int mask(boolean[] flags) {
+        int mask = 0;
+        for (int i = 0; i < flags.length; i++) if (flags[i]) mask |= 1 << i;
+        return mask;
+    }
+
+
+    /**
+     * @return The bitmask of every player in a game of the given size.
+     */
+    public static int all(int numPlayers) {
+        return (1 << numPlayers) - 1;
+    }
+
+
+    public static boolean contains(int mask, int player) {
+        return (mask & 1 << player) != 0;
+    }
+
+
+    /**
+     * @return The number of players in the set.
+     */
+    public static int count(int mask) {
+        return Integer.bitCount(mask);
+    }
+
+
+    /**
+     * @return The players in the set in ascending order.
+     */
+    public static int[] toArray(int mask) {
+        int[] players = new int[Integer.bitCount(mask)];
+        toArray(mask, players);
+        return players;
+    }
+
+
+    /**
+     * Writes the players in the set into an existing array, in ascending order.
+     * @param mask    The set of players.
+     * @param players Array with room for every player in the set.
+     * @return The number of players written.
+     */
+    public static int toArray(int mask, int[] players) {
+        int count = 0;
+        for (; mask != 0; mask &= mask - 1) players[count++] = Integer.numberOfTrailingZeros(mask);
+        return count;
+    }
+
+
+    /**
+     * Sets flags[i] to whether player i is in the set, for every player in the game.
+     * @param mask  The set of players.
+     * @param flags Array with one flag per player.
+     */
+    public static void toFlags(int mask, boolean[] flags) {
+        for (int i = 0; i < flags.length; i++) flags[i] = (mask & 1 << i) != 0;
+    }
+}
@@ -0,0 +1,197 @@
+package cits3001_2021;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Wraps an agent so that every call on it runs on an executor with a deadline. An agent that misses a deadline is
+ * benched for the rest of the game: its late call is interrupted, and it is not called again until the next game,
+ * with a RandomAgent playing its moves instead. This is stricter than AgentTimer, which only replaces a late move
+ * after the agent has returned it, but it never lets a slow or blocked agent hold up the game for longer than the
+ * deadline.
+ *
+ * A benched agent only comes back once its late call has returned, so an agent is never called by two threads at
+ * once; if the call has still not returned by the start of the next game, the agent stays benched for that game too.
+ * The getName and getSuspectedSpies calls are made directly, since Game only makes them between games. Every array
+ * is copied before it is handed to the executor, since Game reuses its arrays for the next call while a late call may
+ * still be reading them.
+ */
+public class DeadlineAgent implements Agent {
+
+    private final Agent agent;
+    private final ExecutorService executor;
+    private final long deadlineNanos;
+    private final RandomAgent backup;
+    private boolean benched;
+    private CountDownLatch late; //Counted down when the call that missed its deadline returns
+    private int timeouts;
+
+
+    /**
+     * Wraps an agent.
+     * @param agent         The agent to call.
+     * @param executor      Runs the calls; VirtualThreads.newExecutor() suits agents that block.
+     * @param deadlineNanos How long each call may take.
+     */
+    public DeadlineAgent(Agent agent, ExecutorService executor, long deadlineNanos) {
+        this.agent = agent;
+        this.executor = executor;
+        this.deadlineNanos = deadlineNanos;
+        backup = new RandomAgent(agent.getName() + "-backup");
+    }
+
+
+    /**
+     * @return The agent being wrapped.
+     */
+    public Agent getAgent() {
+        return agent;
+    }
+
+
+    /**
+     * @return True iff the agent has missed a deadline in the current game.
+     */
+    public boolean isBenched() {
+        return benched;
+    }
+
+
+    /**
+     * @return The number of deadlines the agent has missed over every game.
+     */
+    public int getTimeouts() {
+        return timeouts;
+    }
+
+
+    /**
+     * Calls the agent on the executor, or the backup if the agent is benched or misses the deadline.
+     */
+    private <T> T call(Callable<T> call, Supplier<T> fallback) {
+        if (benched) return fallback.get();
+        CountDownLatch done = new CountDownLatch(1);
+        Future<T> result = executor.submit(() -> {
+            try {
+                return call.call();
+            } finally {
+                done.countDown();
+            }
+        });
+        try {
+            return result.get(deadlineNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            timeouts++;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            if (e.getCause() instanceof Error cause) throw cause;
+            throw new RuntimeException(e.getCause());
+        }
+        result.cancel(true);
+        late = done;
+        benched = true;
+        return fallback.get();
+    }
+
+
+    public String getName() {
+        return agent.getName();
+    }
+
+
+    public void newGame(int numPlayers, int playerIndex, int[] spies) {
+        newGame(numPlayers, playerIndex, spies, null);
+    }
+
+
+    /**
+     * Starts a new game, bringing a benched agent back if its late call has returned by the deadline.
+     * The backup plays from a stream split from the game's, so a game with a benched agent replays from its seed.
+     */
+    public void newGame(int numPlayers, int playerIndex, int[] spies, SplittableRandom random) {
+        if (late != null) {
+            try {
+                if (late.await(deadlineNanos, TimeUnit.NANOSECONDS)) late = null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        benched = late != null;
+        if (random == null) backup.newGame(numPlayers, playerIndex, spies);
+        else backup.newGame(numPlayers, playerIndex, spies, random.split());
+        int[] spiesCopy = spies.clone();
+        call(() -> {
+            if (random == null) agent.newGame(numPlayers, playerIndex, spiesCopy);
+            else agent.newGame(numPlayers, playerIndex, spiesCopy, random);
+            return null;
+        }, () -> null);
+    }
+
+
+    public int[] proposeMission(int teamsize, int failsRequired) {
+        return call(() -> agent.proposeMission(teamsize, failsRequired),
+                () -> backup.proposeMission(teamsize, failsRequired));
+    }
+
+
+    public boolean vote(int[] mission, int leader) {
+        int[] missionCopy = mission.clone();
+        return call(() -> agent.vote(missionCopy, leader), () -> backup.vote(mission, leader));
+    }
+
+
+    public void voteOutcome(int[] mission, int leader, boolean[] votes) {
+        int[] missionCopy = mission.clone();
+        boolean[] votesCopy = votes.clone();
+        call(() -> {
+            agent.voteOutcome(missionCopy, leader, votesCopy);
+            return null;
+        }, () -> null);
+    }
+
+
+    public boolean betray(int[] mission, int leader) {
+        int[] missionCopy = mission.clone();
+        return call(() -> agent.betray(missionCopy, leader), () -> backup.betray(mission, leader));
+    }
+
+
+    public void missionOutcome(int[] mission, int leader, int numFails, boolean missionSuccess) {
+        int[] missionCopy = mission.clone();
+        call(() -> {
+            agent.missionOutcome(missionCopy, leader, numFails, missionSuccess);
+            return null;
+        }, () -> null);
+    }
+
+
+    public void roundOutcome(int roundsComplete, int roundsLost) {
+        call(() -> {
+            agent.roundOutcome(roundsComplete, roundsLost);
+            return null;
+        }, () -> null);
+    }
+
+
+    public void gameOutcome(int roundsLost, int[] spies) {
+        int[] spiesCopy = spies.clone();
+        call(() -> {
+            agent.gameOutcome(roundsLost, spiesCopy);
+            return null;
+        }, () -> null);
+    }
+
+
+    public int[] getSuspectedSpies() {
+        return benched ? new int[0] : agent.getSuspectedSpies();
+    }
+}
@@ -0,0 +1,260 @@
+package cits3001_2021;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Evaluates how many spies Baerule and BasicRebel identify by going through every seating of an environment instead
+ * of leaving the seating to chance. A seating is where each kind of agent sits and which seats are spies; agents of the
+ * same class are interchangeable, so an environment only has a few dozen of them (30 for the amateur environment, 60
+ * for the random one), and every one is equally likely when the seats and spies are drawn at random. Each seating is
+ * played the same number of times, and the estimate is the mean over the seatings, so none of the spread between
+ * seatings ends up in the confidence interval.
+ *
+ * Repeat r of seating c is played from the same seed in every evaluation with the same seed, so two environments with
+ * the same seatings (e.g. with one agent swapped for another of a different class) are compared on common random
+ * numbers. Within a game, both agents are scored on the same game as well, so their difference is estimated from the
+ * paired scores. Its interval is tighter than the two intervals combined as if the agents had played separate games,
+ * though not tighter than either interval on its own.
+ */
+public class Evaluation {
+
+    /**
+     * The seat of each agent of the line-up and the spies of one seating.
+     * @param order Index in the line-up of the agent sitting in each seat.
+     * @param spies The seats of the spies as a bitmask.
+     */
+    private record Seating(int[] order, int spies) {}
+
+
+    /**
+     * A mean with its 95% confidence interval.
+     */
+    public record Estimate(double mean, double halfWidth) {
+        @Override
+        public String toString() {
+            return String.format("%.4f +- %.4f", mean, halfWidth);
+        }
+    }
+
+
+    /**
+     * The stats of the games of one seating: spies identified by Baerule, by BasicRebel, and the difference.
+     */
+    private static final class Stratum {
+        final RunningStats baerule = new RunningStats();
+        final RunningStats basicRebel = new RunningStats();
+        final RunningStats difference = new RunningStats();
+    }
+
+
+    /**
+     * The estimates of an evaluation.
+     */
+    public static class Result {
+        private final Stratum[] strata;
+        private final long games;
+
+        private Result(Stratum[] strata, long games) {
+            this.strata = strata;
+            this.games = games;
+        }
+
+        /**
+         * Averages the means of the seatings, which are independent and equally likely.
+         */
+        private Estimate estimate(int metric) {
+            double mean = 0, variance = 0;
+            for (Stratum stratum : strata) {
+                RunningStats stats = metric == 0 ? stratum.baerule : metric == 1 ? stratum.basicRebel
+                        : stratum.difference;
+                mean += stats.getMean();
+                variance += stats.getVarianceOfMean();
+            }
+            int n = strata.length;
+            return new Estimate(mean / n, RunningStats.Z95 * Math.sqrt(variance) / n);
+        }
+
+        /**
+         * @return The mean number of spies Baerule identifies in a game.
+         */
+        public Estimate getBaerule() {
+            return estimate(0);
+        }
+
+        /**
+         * @return The mean number of spies BasicRebel identifies in a game.
+         */
+        public Estimate getBasicRebel() {
+            return estimate(1);
+        }
+
+        /**
+         * @return How many more spies Baerule identifies than BasicRebel in the same game, on average.
+         */
+        public Estimate getDifference() {
+            return estimate(2);
+        }
+
+        /**
+         * @return The number of seatings played.
+         */
+        public int getSeatings() {
+            return strata.length;
+        }
+
+        /**
+         * @return The number of games played.
+         */
+        public long getGames() {
+            return games;
+        }
+    }
+
+
+    /**
+     * Lists every seating of the environment: every distinct order of the kinds of agent, and for each, every choice of
+     * spies the environment's allocation can make.
+     */
+    private static List<Seating> seatings(ExperimentSpec spec) {
+        Agent[] lineUp = spec.lineUp().get();
+        int n = lineUp.length;
+
+        //kinds[i] is the index of the first agent in the line-up of the same class as agent i
+        int[] kinds = new int[n];
+        for (int i = 0; i < n; i++) {
+            kinds[i] = i;
+            for (int j = 0; j < i; j++) {
+                if (lineUp[j].getClass() == lineUp[i].getClass()) {
+                    kinds[i] = j;
+                    break;
+                }
+            }
+        }
+
+        List<Seating> seatings = new ArrayList<>();
+        int[] arrangement = kinds.clone();
+        Arrays.sort(arrangement);
+        Agent[] seated = new Agent[n];
+        do {
+            //Gives the agents of each kind their seats in line-up order
+            int[] order = new int[n];
+            int[] next = kinds.clone(); //next[k] is the next agent of kind k to seat
+            for (int seat = 0; seat < n; seat++) {
+                int kind = arrangement[seat];
+                order[seat] = next[kind];
+                int following = next[kind] + 1;
+                while (following < n && kinds[following] != kind) following++;
+                next[kind] = following;
+                seated[seat] = lineUp[order[seat]];
+            }
+            int eligible = spec.spyAllocation().eligible(seated);
+            for (int spies : SpyAllocation.seatings(n, GameState.spyNum(n))) {
+                if ((spies & ~eligible) == 0) seatings.add(new Seating(order, spies));
+            }
+        } while (nextPermutation(arrangement));
+        return seatings;
+    }
+
+
+    /**
+     * Moves the array on to its next permutation in lexicographic order, which skips orders that only swap equal values.
+     * @return False if the array was already the last permutation.
+     */
+    private static boolean nextPermutation(int[] a) {
+        int i = a.length - 2;
+        while (i >= 0 && a[i] >= a[i + 1]) i--;
+        if (i < 0) return false;
+        int j = a.length - 1;
+        while (a[j] <= a[i]) j--;
+        int swap = a[i];
+        a[i] = a[j];
+        a[j] = swap;
+        for (int l = i + 1, r = a.length - 1; l < r; l++, r--) {
+            swap = a[l];
+            a[l] = a[r];
+            a[r] = swap;
+        }
+        return true;
+    }
+
+
+    /**
+     * Plays every seating of the environment the given number of times, on every core.
+     * @param spec    The environment; its simulations and games are not used.
+     * @param repeats Number of games played for each seating.
+     * @return The estimates.
+     */
+    public static Result run(ExperimentSpec spec, int repeats) {
+        List<Seating> seatings = seatings(spec);
+        Stratum[] strata = IntStream.range(0, seatings.size()).parallel()
+                .mapToObj(c -> play(spec, seatings.get(c), Tournament.gameSeed(spec.seed(), c), repeats))
+                .toArray(Stratum[]::new);
+        return new Result(strata, (long) seatings.size() * repeats);
+    }
+
+
+    /**
+     * Plays the games of one seating.
+     */
+    private static Stratum play(ExperimentSpec spec, Seating seating, long seed, int repeats) {
+        Stratum stratum = new Stratum();
+        int n = seating.order().length;
+        Game game = new Game(n);
+        game.setShuffled(false);
+        game.setSpyAllocation(SpyAllocation.fixed(seating.spies()));
+        Agent[] seated = new Agent[n];
+        for (int r = 0; r < repeats; r++) {
+            Agent[] lineUp = spec.lineUp().get();
+            for (int seat = 0; seat < n; seat++) seated[seat] = lineUp[seating.order()[seat]];
+            game.play(seated, Tournament.gameSeed(seed, r));
+            int baerule = game.determinedSpies(true);
+            int basicRebel = game.determinedSpies(false);
+            stratum.baerule.add(baerule);
+            stratum.basicRebel.add(basicRebel);
+            stratum.difference.add(baerule - basicRebel);
+        }
+        return stratum;
+    }
+
+
+    /**
+     * Evaluates an environment, and samples the same number of games at random with Tournament for comparison.
+     * Arguments: seed, environment ("amateur" or "random") and games per seating.
+     */
+    public static void main(String[] args) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : new SplittableRandom().nextLong();
+        ExperimentSpec spec = ExperimentSpec.named(args.length > 1 ? args[1] : "amateur", seed);
+        int repeats = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+
+        long start = System.nanoTime();
+        Result result = run(spec, repeats);
+        System.out.printf("Seed %d, %s environment, %d seatings, %d games in %.1fs%n", seed, spec.environment(),
+                result.getSeatings(), result.getGames(), (System.nanoTime() - start) / 1e9);
+        System.out.println("Baerule:    " + result.getBaerule());
+        System.out.println("BasicRebel: " + result.getBasicRebel());
+        System.out.println("Difference: " + result.getDifference());
+
+        Tournament tournament = new Tournament();
+        tournament.setSpyAllocation(spec.spyAllocation());
+        Tournament.Result sampled = tournament.run(spec.lineUp(), (int) result.getGames(), seed);
+        System.out.println("Sampled at random, same number of games:");
+        System.out.println("Baerule:    " + fromHistogram(sampled.getBaerule()));
+        System.out.println("BasicRebel: " + fromHistogram(sampled.getBasicRebel()));
+    }
+
+
+    /**
+     * @return The stats of the number of spies identified, from how many games 0, 1 and 2 were identified in.
+     */
+    private static RunningStats fromHistogram(int[] identified) {
+        RunningStats stats = new RunningStats();
+        for (int spies = 0; spies < identified.length; spies++) {
+            for (int i = 0; i < identified[spies]; i++) stats.add(spies);
+        }
+        return stats;
+    }
+}
@@ -1,8 +1,9 @@
 package cits3001_2021;
 
 import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
 
 /**
  * This program will simulate the data needed for analysis of the performance of both agents (BasicRebel & Baerule) in
@@ -10,9 +11,15 @@ import java.io.IOException;
  * how many times the agent correctly identifies at least one of the spy, and how many times either agents wasn't able
  * to identify either of the spies.
  *
- * When doing simulations on different environments, please comment out the environments that are analysed and uncomment
- * the one is needed. This is due to the logic in Game.java and simultaneously running all environment simulations will
- * cause errors. The README.txt file should provide a detailed explanation on this regard.
+ * Each environment is described by an ExperimentSpec: its line-up, which agents are never spies, and how many games
+ * are played. The environments to simulate can be named on the command line after the seed, e.g. "amateur random", and
+ * are all simulated at once in the same JVM. The README.txt file should provide a detailed explanation on this regard.
+ *
+ * After the last simulation round, the research log also gets every figure of the environment with its 95% interval,
+ * from a GameStats that is updated as the games are played (see GameStats for what it tracks).
+ *
+ * The seed of the whole experiment is logged at the start, and can be passed as the first argument to repeat the
+ * experiment exactly.
  *
  * @author Josephine Bienes <22511218>
  * @since 14/10/2021
@@ -20,20 +27,6 @@ import java.io.IOException;
 
 public class Experiment {
 
-    /**
-     * Helper function to get the index the number should be added.
-     * @param spiesIdentified How many spies the agent has identified in a game.
-     * @return The index that the number should be incremented.
-     * */
-    private static int getIndex(int spiesIdentified){
-        return switch (spiesIdentified){
-            case 2 -> 2;
-            case 1 -> 1;
-            default -> 0;
-        };
-    }
-
-
     /**
      * Helper function to log the relevant data in the txt file. More general overview of the data for every incremental
      * simulation of the games.
@@ -41,19 +34,11 @@ public class Experiment {
      * @param name Filename that this data will be stored in.
      * @param isBaerule If true, Baerule's data will be logged. Othewise BasicRebel's.
      * */
-    private static void log(int[] totalTimesIdentified, String name, boolean isBaerule) throws IOException {
-        File logF = new File(name);
-        FileWriter log = new FileWriter(logF, true);
-
-        if(isBaerule){
-            log.write("Baerule's total identification: [0: "+totalTimesIdentified[0]+"],");
-        }
-        else{
-            log.write("BasicRebel's total identification: [0: "+totalTimesIdentified[0]+"],");
-        }
-        log.write("[1: "+totalTimesIdentified[1]+"], ");
-        log.write("[2: "+totalTimesIdentified[2]+"]" +"\n");
-        log.close();
+    private static void log(int[] totalTimesIdentified, String name, boolean isBaerule) {
+        String agent = isBaerule ? "Baerule" : "BasicRebel";
+        log(name, agent+"'s total identification: [0: "+totalTimesIdentified[0]+"],"
+                + "[1: "+totalTimesIdentified[1]+"], "
+                + "[2: "+totalTimesIdentified[2]+"]");
     }
 
 
@@ -65,150 +50,87 @@ public class Experiment {
      * @param name Filename that this data will be stored in.
      * @param index Index of the array that is going to be written from totalTimesIdentified array provided.
      * */
-    private static void log( int[] totalTimesIdentified, String name, int index) throws IOException {
-        File logF = new File(name);
-        FileWriter log = new FileWriter(logF, true);
-
-        log.write(totalTimesIdentified[index] + "\n");
-        log.close();
+    private static void log( int[] totalTimesIdentified, String name, int index) {
+        log(name, String.valueOf(totalTimesIdentified[index]));
     }
 
 
     /**
      * Helper function to log the relevant data in the txt file. This is if there are certain text that needs to be
-     * added in the logfile.
+     * added in the logfile. The line is handed to the shared log sink, which writes it in the background.
      * @param name Filename that this data will be stored in.
      * @param msg String that you want to add in the logfile.
      * */
-    private static void log( String name, String msg) throws IOException {
-        File logF = new File(name);
-        FileWriter log = new FileWriter(logF, true);
-
-        log.write(msg+"\n");
-        log.close();
+    private static void log( String name, String msg) {
+        LogSink.shared().write(new File(name), msg);
     }
 
 
-    public static void main(String[] args) throws IOException {
-
-        //-----------------------------------------------------------------------------------------------------------
-        // Amateur environment
-        //-----------------------------------------------------------------------------------------------------------
-
+    /**
+     * Simulates a single environment, logging the spies Baerule and BasicRebel identified after every simulation
+     * round into the research log and the six individual logs of the environment.
+     * @param spec The environment to simulate.
+     * */
+    private static void run(ExperimentSpec spec) {
         //Stores the total amount of times a spy has been determined; 1st is 0, 2nd is 1, and 3rd is 2
-        int[] determinedSpiesBR = new int[3]; //Baerule
-        int[] determinedSpiesB = new int[3]; //BasicRebel
-
-        int c = 1, n = 2000;
+        int[] determinedSpiesBR; //Baerule
+        int[] determinedSpiesB; //BasicRebel
 
-        while(c<201){
+        Tournament tournament = new Tournament();
+        tournament.setSpyAllocation(spec.spyAllocation());
+        GameStats stats = new GameStats(); //Every game of the environment so far
+        log(spec.researchLog(), "Seed: " + spec.seed());
 
-            for(int i = 0; i<n; i++){
-                Agent[] agents = {Baerule.init(),
-                        BasicRebel.init(),
-                        BasicRebel.init(),
-                        BasicRebel.init(),
-                        BasicRebel.init()};
-                Game game = new Game(agents);
+        for (int c = 1; c <= spec.simulations(); c++) {
 
-                //Analysis
-
-                //Baerule
-                int temp = game.determinedSpies(true);
-                int ind = getIndex(temp);
-                determinedSpiesBR[ind] += 1;
-
-                //BasicRebel
-                temp = game.determinedSpies(false);
-                ind = getIndex(temp);
-                determinedSpiesB[ind] += 1;
-            }
+            //Plays the games across all cores
+            Tournament.Result result = tournament.run(spec.lineUp(), spec.games(), Tournament.gameSeed(spec.seed(), c));
+            determinedSpiesBR = result.getBaerule();
+            determinedSpiesB = result.getBasicRebel();
+            stats.merge(result.getStats());
 
             //Logs the data in the txt file for each simulation
-            log("research_log_game_amateur.txt", "Simulation round: " + c);
-            log(determinedSpiesBR, "research_log_game_amateur.txt", true);
-            log(determinedSpiesB, "research_log_game_amateur.txt", false);
-            log("research_log_game_amateur.txt", " ");
+            log(spec.researchLog(), "Simulation round: " + c);
+            log(determinedSpiesBR, spec.researchLog(), true);
+            log(determinedSpiesB, spec.researchLog(), false);
+            log(spec.researchLog(), " ");
 
             //Logs individual aspects into different files (6 files in total for the 2 agents)
+            for (int i = 0; i < 3; i++) {
+                log(determinedSpiesBR, spec.spiesLog(i, true), i); //BR
+                log(determinedSpiesB, spec.spiesLog(i, false), i); //B
+            }
 
-            //BR
-            log(determinedSpiesBR, "0-spies-br-amateur.txt", 0);
-            log(determinedSpiesBR, "1-spies-br-amateur.txt", 1);
-            log(determinedSpiesBR, "2-spies-br-amateur.txt", 2);
-
-            //B
-            log(determinedSpiesB, "0-spies-b-amateur.txt", 0);
-            log(determinedSpiesB, "1-spies-b-amateur.txt", 1);
-            log(determinedSpiesB, "2-spies-b-amateur.txt", 2);
-
-            //Reset
-            determinedSpiesBR = new int[3];
-            determinedSpiesB = new int[3];
-
-            c++;
+            //Stops once more games would not make the figures any more precise than asked for
+            if (spec.precision() > 0 && stats.isPrecise(spec.precision())) {
+                log(spec.researchLog(), "Reached a precision of " + spec.precision() + " after " + c
+                        + " simulation rounds");
+                break;
+            }
         }
+        log(spec.researchLog(), stats.report());
+    }
 
 
+    /**
+     * Simulates the environments named after the seed, or both the amateur and random environments if none are named.
+     * The environments are simulated side by side, sharing the same cores. Running with -Dprecision=0.005 (for
+     * example) stops each environment once its identification figures are known to within that.
+     * */
+    public static void main(String[] args) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : new SplittableRandom().nextLong();
+        String[] environments = args.length > 1 ? Arrays.copyOfRange(args, 1, args.length)
+                : new String[]{"amateur", "random"};
+
+        double precision = Double.parseDouble(System.getProperty("precision", "0"));
 
+        //Looks every environment up first, so a misspelt name fails before anything is simulated
+        Arrays.stream(environments)
+                .map(environment -> ExperimentSpec.named(environment, seed).withPrecision(precision))
+                .collect(Collectors.toList())
+                .parallelStream()
+                .forEach(Experiment::run);
 
-        //-----------------------------------------------------------------------------------------------------------
-        // Random environment - Go to the Game.java file and add in the conditional logic for selecting spies
-        //-----------------------------------------------------------------------------------------------------------
-
-        //Reset
-//        int c = 1, n = 2000;
-//
-//        //Stores the total amount of times a spy has been determined; 1st is 0, 2nd is 1, and 3rd is 2
-//        int[] determinedSpiesBR = new int[3]; //Baerule
-//        int[] determinedSpiesB = new int[3]; //BasicRebel
-//
-//        while(c<200){
-//
-//            for(int i = 0; i<n; i++){
-//                Agent[] agents = {Baerule.init(),
-//                        BasicRebel.init(),
-//                        RandomAgent.init(),
-//                        RandomAgent.init(),
-//                        RandomAgent.init()};
-//                Game game = new Game(agents);
-//
-//                //Analysis
-//
-//                //Baerule
-//                int temp = game.determinedSpies(true);
-//                int ind = getIndex(temp);
-//                determinedSpiesBR[ind] += 1;
-//
-//                //BasicRebel
-//                temp = game.determinedSpies(false);
-//                ind = getIndex(temp);
-//                determinedSpiesB[ind] += 1;
-//            }
-//
-//            //Logs the data in the txt file for each simulation
-//            log("research_log_game_random.txt", "Total game simulations: " + n);
-//            log(determinedSpiesBR, "research_log_game_random.txt", true);
-//            log(determinedSpiesB, "research_log_game_random.txt", false);
-//            log("research_log_game_random.txt", " ");
-//
-//            //Logs individual aspects into different files (6 files in total for the 2 agents)
-//
-//            //BR
-//            log(determinedSpiesBR, "0-spies-br-random.txt", 0);
-//            log(determinedSpiesBR, "1-spies-br-random.txt", 1);
-//            log(determinedSpiesBR, "2-spies-br-random.txt", 2);
-//
-//            //B
-//            log(determinedSpiesB, "0-spies-b-random.txt", 0);
-//            log(determinedSpiesB, "1-spies-b-random.txt", 1);
-//            log(determinedSpiesB, "2-spies-b-random.txt", 2);
-//
-//            //Reset
-//            determinedSpiesBR = new int[3];
-//            determinedSpiesB = new int[3];
-//
-//            c++;
-//        }
+        LogSink.shared().flush();
     }
 }
@@ -0,0 +1,96 @@
+package cits3001_2021;
+
+import java.util.function.Supplier;
+
+/**
+ * Describes one environment of the experiment: the agents that play every game, how the spies are chosen among them,
+ * how many simulation rounds of how many games are played, and the seed they are played from. The number of players
+ * is the size of the line-up. Experiment runs any number of specs side by side in one JVM, and Game.main replays a
+ * single game of one.
+ *
+ * @param environment   Name of the environment, used in the names of its log files.
+ * @param lineUp        Creates the agents for a single game.
+ * @param spyAllocation How the spies of every game are chosen.
+ * @param simulations   Number of simulation rounds, each logged as one line of every log file.
+ * @param games         Number of games played in each simulation round.
+ * @param seed          Seed of the whole environment; simulation round c is played from Tournament.gameSeed(seed, c).
+ * @param precision     Stops the environment early once the identification figures are this precise (the half-width
+ *                      of their 95% intervals, see GameStats.isPrecise), or 0 to play every simulation round.
+ */
+public record ExperimentSpec(String environment, Supplier<Agent[]> lineUp, SpyAllocation spyAllocation,
+                             int simulations, int games, long seed, double precision) {
+
+    /**
+     * Baerule against four BasicRebels, with Baerule always on the resistance.
+     */
+    public static ExperimentSpec amateur(long seed) {
+        return new ExperimentSpec("amateur", () -> new Agent[]{Baerule.init(),
+                BasicRebel.init(),
+                BasicRebel.init(),
+                BasicRebel.init(),
+                BasicRebel.init()}, SpyAllocation.excluding(Baerule.class), 200, 2000, seed, 0);
+    }
+
+
+    /**
+     * Baerule and a BasicRebel against three RandomAgents, with both studied agents always on the resistance.
+     */
+    public static ExperimentSpec random(long seed) {
+        return new ExperimentSpec("random", () -> new Agent[]{Baerule.init(),
+                BasicRebel.init(),
+                RandomAgent.init(),
+                RandomAgent.init(),
+                RandomAgent.init()}, SpyAllocation.excluding(Baerule.class, BasicRebel.class), 200, 2000,
+                seed, 0);
+    }
+
+
+    /**
+     * Looks up one of the built in environments by name.
+     * @param environment "amateur" or "random".
+     * @param seed        Seed of the environment.
+     * @return The spec of the environment.
+     */
+    public static ExperimentSpec named(String environment, long seed) {
+        return switch (environment) {
+            case "amateur" -> amateur(seed);
+            case "random" -> random(seed);
+            default -> throw new IllegalArgumentException("Unknown environment: " + environment);
+        };
+    }
+
+
+    /**
+     * @param precision The half-width of the 95% intervals to stop at, or 0 to play every simulation round.
+     * @return A copy of this spec that stops once its identification figures are that precise.
+     */
+    public ExperimentSpec withPrecision(double precision) {
+        return new ExperimentSpec(environment, lineUp, spyAllocation, simulations, games, seed, precision);
+    }
+
+
+    /**
+     * @return The number of players in every game.
+     */
+    public int numPlayers() {
+        return lineUp.get().length;
+    }
+
+
+    /**
+     * @return The name of the research log, which compares both agents after every simulation round.
+     */
+    public String researchLog() {
+        return "research_log_game_" + environment + ".txt";
+    }
+
+
+    /**
+     * @param spiesIdentified 0, 1 or 2.
+     * @param isBaerule       True for Baerule's log, otherwise BasicRebel's.
+     * @return The name of the log of how often the agent identified that many spies.
+     */
+    public String spiesLog(int spiesIdentified, boolean isBaerule) {
+        return spiesIdentified + "-spies-" + (isBaerule ? "br" : "b") + "-" + environment + ".txt";
+    }
+}
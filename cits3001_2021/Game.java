@@ -12,37 +12,59 @@ public class Game{
 
   private Agent[] players;
   private int[] spies;
-  private int leader;
+  private int spyMask; //bit i is set iff player i is a spy
+  private MaskAgent[] maskAgents; //maskAgents[i] is players[i] if it takes bitmasks, otherwise null
+  private GameState state; //leader, round and score, stepped by the rules kernel
   private Round[] rounds;
   private int round;
-  private static final int[] spyNum = {2,2,3,3,3,4}; //spyNum[n-5] is the number of spies in an n player game
-  private static final int[][] missionNum = {{2,3,2,3,3},{2,3,4,3,4},{2,3,3,4,4},{3,4,4,5,5},{3,4,4,5,5},{3,4,4,5,5}};
-  //missionNum[n-5][i] is the number to send on mission i in an n player game
-  private Random rand;
+  private static final int[] NO_SPIES = new int[0]; //what resistance members are told about the spies
+  private SplittableRandom rand;
+  private long seed;
+  private long index; //of the game in its batch, for allocations that go through the seatings in turn
   private RandomAgent backup;
   private File logFile;
   private boolean logging = false;
+  private GameTrace trace; //binary record of every game, if set
+  private final GameTrace.Record record = new GameTrace.Record();
   private boolean started = false;
-  private long stopwatch = 0;
+  private AgentTimer timer; //times every agent call and enforces budgets, if set
+  private Listener listener; //told about every step of the game, if set
+  private Phase phase = Phase.GAME_OVER;
+  private int steps; //steps taken since the game started
+  private boolean shuffled = true; //seats the agents in a random order, otherwise in the order given
+  private SpyAllocation spyAllocation = SpyAllocation.excluding(Baerule.class); //chooses the spies of each game
+
+  //Copies of the game state handed to the agents, so an agent changing an array cannot change the game.
+  //They are refilled before every call instead of being cloned.
+  private int[][] teamViews; //teamViews[k] is used for teams of size k
+  private boolean[] voteView;
+  private int[] spyView;
 
   //------------------------------------------------------------------------------------------
   //Analysis
-  private int idBaerule;
-  private int idBasicRebel;
+  private int idBaerule; //-1 if there is no Baerule in the game
+  private int idBasicRebel; //-1 if there is no BasicRebel playing resistance
+  private static final int[] NONE_SUSPECTED = new int[0];
   int[] suspectedSpies = new int[2]; //Bearule's
   int[] suspectedSpies1 = new int[2]; //BasicRebel
   //------------------------------------------------------------------------------------------
 
-  private static final int failsRequired(int playerNum, int round){
-    return (playerNum>6 && round==3)?2:1;
-  }
-
   /**
    * Creates an empty game.
    * Game log printed to stdout
    * */
   public Game(Agent[] players){
-    init(players);
+    this(players, new SplittableRandom().nextLong());
+  }
+
+  /**
+   * Creates an empty game that is played out from the given seed.
+   * Playing the same agents from the same seed replays the game exactly.
+   * @param seed the seed for the seating, spies and every agent's random stream
+   * */
+  public Game(Agent[] players, long seed){
+    allocate(players.length);
+    play(players, seed);
   }
 
   /**
@@ -50,56 +72,221 @@ public class Game{
    * @param fName path to the log file
    * */
   public Game(String fName, Agent[] players){
+    this(fName, players, new SplittableRandom().nextLong());
+  }
+
+  /**
+   * Creates an empty game that is played out from the given seed.
+   * @param fName path to the log file
+   * @param seed the seed for the seating, spies and every agent's random stream
+   * */
+  public Game(String fName, Agent[] players, long seed){
     logFile = new File(fName);
     logging = true;
-    init(players);
+    allocate(players.length);
+    play(players, seed);
   }
 
-  private Agent[] shuffle(Agent[] players){
-    Agent[] shuffle = players.clone();
-    for(int i = 0; i<players.length; i++){
+  /**
+   * Creates an arena for games of the given size, without playing one.
+   * Every game played in the arena with play reuses the same rounds, missions and buffers,
+   * so playing many games does not allocate in the mission loop.
+   * @param numPlayers the number of players the buffers are sized for
+   * */
+  public Game(int numPlayers){
+    allocate(numPlayers);
+  }
+
+  /**
+   * Sizes the buffers used by every game played with this object.
+   * */
+  private void allocate(int numPlayers){
+    if(numPlayers < 5) throw new RuntimeException("Too few players");
+    if(numPlayers > 10) throw new RuntimeException("Too many players");
+    players = new Agent[numPlayers];
+    state = new GameState(numPlayers, 0);
+    spies = new int[GameState.spyNum(numPlayers)];
+    maskAgents = new MaskAgent[numPlayers];
+    spyView = new int[spies.length];
+    voteView = new boolean[numPlayers];
+    teamViews = new int[6][];
+    for(int k = 0; k<teamViews.length; k++) teamViews[k] = new int[k];
+    backup = new RandomAgent("backup");
+    rounds = new Round[5];
+    for(int i = 0; i<5; i++) rounds[i] = new Round();
+  }
+
+  private void shuffle(Agent[] agents){
+    System.arraycopy(agents, 0, players, 0, agents.length);
+    for(int i = 0; shuffled && i<players.length; i++){
       int next = i + rand.nextInt(players.length-i);
-      Agent n = shuffle[next];
-      shuffle[next] = shuffle[i];
-      shuffle[i] = n;
+      Agent n = players[next];
+      players[next] = players[i];
+      players[i] = n;
     }
-    return shuffle;
+    for(int i = 0; i<players.length; i++)
+      maskAgents[i] = players[i] instanceof MaskAgent ? (MaskAgent)players[i] : null;
   }
 
   /**
-   * Initializes the data structures for the game
+   * Copies the team into the buffer handed to agents for teams of that size.
    * */
-  private void init(Agent[] agents){
-    rand = new Random();
-    long seed = rand.nextLong();
-    rand.setSeed(seed);
-    log("Seed: "+seed);
-    if(agents.length < 5) throw new RuntimeException("Too few players");
-    this.players = shuffle(agents);
-    leader = 0;
+  private int[] teamView(int[] team){
+    int[] view = teamViews[team.length];
+    System.arraycopy(team, 0, view, 0, team.length);
+    return view;
+  }
 
-    //This here initiates spies; normally it's randomized
-    this.spies = new int[spyNum[players.length-5]];
-    boolean[] spying = new boolean[players.length];
-    for(int i = 0; i<spyNum[players.length-5]; i++){
-      int spy = -1;
+  private boolean[] voteView(int votes){
+    Bits.toFlags(votes, voteView);
+    return voteView;
+  }
 
-      //------------------------------------------------------------------------------------------
-      //Here where the spies are chosen
-      //In the random environment add in the "or" statement for BasicRebel to not be a spy
-      // || players[spy].getName().contains("BasicRebel")
-      while(spy ==-1 || spying[spy] || players[spy].getName().contains("Baerule")){
-        spy = rand.nextInt(players.length);
-      }
-      //------------------------------------------------------------------------------------------
+  private int[] spyView(){
+    System.arraycopy(spies, 0, spyView, 0, spies.length);
+    return spyView;
+  }
 
-      spying[spy] = true;
-      spies[i] = spy;
-    }
+  /**
+   * Times every agent call from now on, substituting the backup's move when an agent overruns a decision's budget.
+   * @param timer the timer to record calls in, or null to stop timing
+   * */
+  public void setTimer(AgentTimer timer){
+    this.timer = timer;
+  }
+
+  /**
+   * Sets whether the agents of the games played from now on are seated in a random order (the default),
+   * or in the order they are given in, e.g. to go through every seating in turn.
+   * @param shuffled true to shuffle the seats
+   * */
+  public void setShuffled(boolean shuffled){
+    this.shuffled = shuffled;
+  }
+
+  /**
+   * Sets how the spies of the games played from now on are chosen.
+   * By default Baerule is never a spy, and the spies are chosen uniformly among the other players.
+   * @param spyAllocation the allocation to use, e.g. SpyAllocation.uniform() to let anyone be a spy
+   * */
+  public void setSpyAllocation(SpyAllocation spyAllocation){
+    this.spyAllocation = spyAllocation;
+  }
+
+  /**
+   * Logs every game played from now on to the given file.
+   * @param fName path to the log file, or null to stop logging
+   * */
+  public void setLogFile(String fName){
+    logFile = fName==null ? null : new File(fName);
+    logging = fName!=null;
+  }
+
+  /**
+   * Records every game played from now on in the given trace.
+   * @param trace the trace to append games to, or null to stop tracing
+   * */
+  public void setTrace(GameTrace trace){
+    this.trace = trace;
+  }
+
+  /**
+   * The steps a game goes through. A game starts at PROPOSE and every call to step does the work of the current phase:
+   * PROPOSE asks the leader for a team, VOTE asks everyone to vote on it, EXECUTE asks the spies on an approved team
+   * to betray, and ROUND_END tells everyone the round is over. After a rejected vote the game goes back to PROPOSE,
+   * unless it was the fifth of the round. GAME_OVER is reached after the fifth round, and also before any game starts.
+   * */
+  public enum Phase {PROPOSE, VOTE, EXECUTE, ROUND_END, GAME_OVER}
+
+  /**
+   * Told about every step of a game as it happens. Teams and votes are bitmasks, see Bits.
+   * Every method does nothing by default.
+   * */
+  public interface Listener {
+    default void proposed(Game game, int leader, int team){}
+
+    default void voted(Game game, int team, int votes, boolean approved){}
+
+    default void executed(Game game, int team, int fails, boolean success){}
+
+    default void roundEnded(Game game, int round, boolean success){}
+
+    default void gameOver(Game game, int score){}
+  }
+
+  /**
+   * What can be seen of a game between two steps: the step it is at and the state of the rules,
+   * with the team and votes of the current mission as bitmasks (0 if not yet proposed or voted on).
+   * */
+  public record Snapshot(long seed, long index, int steps, Phase phase, int round, int wins, int losses,
+                         int rejects, int leader, int team, int votes){}
+
+  /**
+   * Tells the listener about every step of the games played from now on.
+   * @param listener the listener, or null to stop listening
+   * */
+  public void setListener(Listener listener){
+    this.listener = listener;
+  }
+
+  /**
+   * Plays a full game with the given agents, reusing this game's buffers.
+   * The agents are given copies of the game state that are refilled before every call,
+   * so they must copy any array they want to keep past the call.
+   * @param agents the agents to seat, the number of agents must match the size of the arena
+   * @param seed the seed for the seating, spies and every agent's random stream
+   * */
+  public void play(Agent[] agents, long seed){
+    play(agents, seed, 0);
+  }
+
+  /**
+   * Plays a full game that is one of a batch, see play.
+   * @param agents the agents to seat, the number of agents must match the size of the arena
+   * @param seed the seed for the seating, spies and every agent's random stream
+   * @param index the index of the game in its batch, which SpyAllocation.enumerate chooses the spies by
+   * */
+  public void play(Agent[] agents, long seed, long index){
+    start(agents, seed, index);
+    while(step());
+  }
+
+  /**
+   * Seats the agents and chooses the spies for a new game, without playing any of it.
+   * The game is then played by calling step until it returns false, so many games can be
+   * interleaved on one thread, paused, or inspected between steps.
+   * @param agents the agents to seat, the number of agents must match the size of the arena
+   * @param seed the seed for the seating, spies and every agent's random stream
+   * */
+  public void start(Agent[] agents, long seed){
+    start(agents, seed, 0);
+  }
+
+  /**
+   * Sets up a new game that is one of a batch, see start.
+   * @param agents the agents to seat, the number of agents must match the size of the arena
+   * @param seed the seed for the seating, spies and every agent's random stream
+   * @param index the index of the game in its batch, which SpyAllocation.enumerate chooses the spies by
+   * */
+  public void start(Agent[] agents, long seed, long index){
+    if(agents.length != players.length) allocate(agents.length);
+    this.seed = seed;
+    this.index = index;
+    rand = new SplittableRandom(seed);
+    if(logging) log("Seed: "+seed+(index != 0 ? ", game "+index : ""));
+    shuffle(agents);
+
+    //This here initiates spies; normally it's randomized, with Baerule never a spy
+    spyMask = spyAllocation.allocate(players, spies.length, rand, index);
+    if(Integer.bitCount(spyMask) != spies.length || spyMask >>> players.length != 0)
+      throw new RuntimeException("Allocated "+Integer.bitCount(spyMask)+" spies instead of "+spies.length);
+    Bits.toArray(spyMask, spies);
+    state.reset(players.length, spyMask);
+    if(trace != null) record.start(seed, players.length, spyMask);
     for(int i = 0; i<players.length; i++){
-      int[] spyCopy = new int[0];
-      if(spying[i]) spyCopy = spies.clone();
-      players[i].newGame(players.length, i, spyCopy);
+      long start = stopwatchOn();
+      players[i].newGame(players.length, i, isSPy(i)?spyView():NO_SPIES, rand.split());
+      stopwatchOff(start, AgentTimer.Call.NEW_GAME, i);
     }
     log("Game set up. Spys allocated");
 
@@ -108,24 +295,121 @@ public class Game{
     getId();
     //-------------------------------------
 
-    //allocate RandomAgent to substitute bad moves
-    backup = new RandomAgent("backup");
-    backup.newGame(players.length, 0, spies);
-    rounds = new Round[5];
-    for(round = 0; round<5; round++)
-      rounds[round] = new Round();
-    for(int i = 0; i< players.length; i++)
-      players[i].gameOutcome(5-getScore(), spies.clone());
-    log("Game complete: Resistance "+(getScore()>2?"successful.":"failed." +"\n"));
-    log("The spies were: "+teamString(spies)+"\n");
+    //RandomAgent to substitute bad moves
+    backup.newGame(players.length, 0, spyView(), rand.split());
+    round = 0;
+    rounds[0].mNum = 0;
+    steps = 0;
+    phase = Phase.PROPOSE;
+  }
+
+  /**
+   * Does the work of the current phase and moves on to the next one.
+   * @return true if there is more of the game to play, false once it is over
+   * */
+  public boolean step(){
+    if(phase == Phase.GAME_OVER) return false;
+    Round current = rounds[round];
+    Mission mission = current.missions[current.mNum];
+    switch(phase){
+      case PROPOSE -> {
+        mission.propose();
+        phase = Phase.VOTE;
+      }
+      case VOTE -> {
+        mission.vote();
+        if(mission.approved()) phase = Phase.EXECUTE;
+        else if(state.getRound() != round) phase = Phase.ROUND_END; //the fifth rejection lost the round
+        else{
+          current.mNum++;
+          phase = Phase.PROPOSE;
+        }
+      }
+      case EXECUTE -> {
+        mission.execute();
+        phase = Phase.ROUND_END;
+      }
+      case ROUND_END -> {
+        current.end();
+        if(++round < 5){
+          rounds[round].mNum = 0;
+          phase = Phase.PROPOSE;
+        }
+        else{
+          finish();
+          phase = Phase.GAME_OVER;
+        }
+      }
+      default -> {}
+    }
+    steps++;
+    return phase != Phase.GAME_OVER;
+  }
+
+  /**
+   * @return the phase the next call to step will play
+   * */
+  public Phase getPhase(){
+    return phase;
+  }
+
+  /**
+   * @return the state of the game between two steps
+   * */
+  public Snapshot snapshot(){
+    int team = 0, votes = 0;
+    if(phase != Phase.GAME_OVER && phase != Phase.PROPOSE){
+      Round current = rounds[round];
+      team = current.missions[current.mNum].teamMask;
+      votes = current.missions[current.mNum].voteMask;
+    }
+    return new Snapshot(seed, index, steps, phase, state.getRound(), state.getWins(), state.getLosses(),
+                        state.getRejects(), state.getLeader(), team, votes);
+  }
+
+  /**
+   * Brings the game back to a snapshot by replaying it from its seed, since the agents' own state
+   * can only be rebuilt by playing them through the same game again.
+   * The agents must play the same way from the same seed, which rules out agents searching on a time budget.
+   * @param agents the agents the snapshot was taken with, in the same order
+   * @param snapshot the snapshot to go back to
+   * */
+  public void restore(Agent[] agents, Snapshot snapshot){
+    start(agents, snapshot.seed(), snapshot.index());
+    while(steps < snapshot.steps() && step());
+    if(!snapshot().equals(snapshot))
+      throw new IllegalStateException("The agents did not replay the same game");
+  }
+
+  /**
+   * Ends the game, telling everyone who the spies were.
+   * */
+  private void finish(){
+    for(int i = 0; i< players.length; i++){
+      long start = stopwatchOn();
+      players[i].gameOutcome(5-getScore(), spyView());
+      stopwatchOff(start, AgentTimer.Call.GAME_OUTCOME, i);
+    }
+    if(trace != null){
+      try{
+        trace.write(record);
+      }catch(IOException e){e.printStackTrace();}
+    }
+    if(logging){
+      log("Game complete: Resistance "+(getScore()>2?"successful.":"failed." +"\n"));
+      log("The spies were: "+teamString(spies)+"\n");
+    }
 
     //-------------------------------------
     //Logging for analysis
 //    -------------------------------------
-    suspectedSpies = players[idBaerule].getSuspectedSpies();
-    suspectedSpies1 = players[idBasicRebel].getSuspectedSpies();
-    log("Baerule's suspected spies: [" +suspectedSpies[0]+ ", " +suspectedSpies[1]+ "]");
-    log("BasicRebel's suspected spies: [" +suspectedSpies1[0]+ ", " +suspectedSpies1[1]+ "]"+"\n");
+    suspectedSpies = idBaerule<0 ? NONE_SUSPECTED : players[idBaerule].getSuspectedSpies();
+    suspectedSpies1 = idBasicRebel<0 ? NONE_SUSPECTED : players[idBasicRebel].getSuspectedSpies();
+    if(logging){
+      log("Baerule's suspected spies: " +Arrays.toString(suspectedSpies));
+      log("BasicRebel's suspected spies: " +Arrays.toString(suspectedSpies1)+"\n");
+    }
+    if(listener != null) listener.gameOver(this, getScore());
   }
 
 
@@ -136,6 +420,8 @@ public class Game{
    * Helper function that gets the id of the agents needed for analysis.
    * */
   private void getId(){
+   idBaerule = -1;
+   idBasicRebel = -1;
    for(int i = 0; i< players.length; i++){
      if(players[i].getName().contains("Baerule")){
        idBaerule = i;
@@ -151,10 +437,7 @@ public class Game{
    * Helper function that determines if the player is a spy
    * */
   private boolean isSPy(int id){
-    for(Integer spy: spies){
-      if(spy == id) return true;
-    }
-    return false;
+    return (spyMask & 1<<id) != 0;
   }
 
 
@@ -207,14 +490,41 @@ public class Game{
   //----------------------------------------------------------------------
 
 
+  /**
+   * @return the seed this game was played from
+   * */
+  public long getSeed(){return seed;}
+
+  /**
+   * @return the index of this game in its batch, 0 if it was not played as part of one
+   * */
+  public long getIndex(){return index;}
+
+  /**
+   * @return the number of players in the game
+   * */
+  public int getNumPlayers(){return players.length;}
+
+  /**
+   * @param seat the seat of the player, from 0
+   * @return the agent sitting in the seat
+   * */
+  public Agent getPlayer(int seat){return players[seat];}
+
+  /**
+   * @return the seats of the spies as a bitmask
+   * */
+  public int getSpyMask(){return spyMask;}
+
+  /**
+   * @return the number of rounds the resistance has won so far
+   * */
   public int getScore(){
-    int score = 0;
-    for(int i = 0; i< round; i++)
-      if(rounds[i].successful())score++;
-    return score;
+    return state.getWins();
   }
 
   public String teamString(int[] team){
+    if(team.length == 0) return "[]";
     String str = "["+team[0];
     for(int i  = 1; i<team.length; i++)
       str+=","+team[i];
@@ -226,87 +536,165 @@ public class Game{
    * @param msg the String to log
    * */
   private void log(String msg){
-    if(logging){
-      try{
-        FileWriter log = new FileWriter(logFile, true);
-        log.write(msg + "\n");
-        log.close();
-      }catch(IOException e){e.printStackTrace();}
-    }
+    if(logging) LogSink.shared().write(logFile, msg);
 //    System.out.println(msg);
   }
 
 
 
   /**
-   * Starts a timer for Agent method calls.
-   * Not used here, but can be accessed for investigating efficiency.
+   * Starts a timer for an Agent method call, if calls are being timed.
+   * @return the start time in nanoseconds
    * */
-  private void stopwatchOn(){
-    stopwatch = System.currentTimeMillis();
+  private long stopwatchOn(){
+    return timer==null ? 0 : System.nanoTime();
   }
 
   /**
-   * Checks how if timelimit exceed and if so, logs a violation against a player.
-   * @param limit the limit since stopwatch start, in milliseconds
+   * Records how long a call took against a player and checks if its time limit was exceeded,
+   * and if so, logs a violation against the player.
+   * @param start the time returned by stopwatchOn
+   * @param call the method that was called
    * @param player the player who the violation will be recorded against.
+   * @return true if the player went over the limit and their move should be replaced
    * */
-  private void stopwatchOff(long limit, int player){
-    long delay = System.currentTimeMillis()-stopwatch;
-    if(delay>limit)
-      log("Player: "+player+". Time exceeded by "+delay);
+  private boolean stopwatchOff(long start, AgentTimer.Call call, int player){
+    if(timer==null) return false;
+    long delay = System.nanoTime()-start;
+    boolean exceeded = timer.record(players[player], call, delay);
+    if(exceeded && logging)
+      log("Player: "+player+". Time exceeded by "+(delay-timer.getBudget(call))+"ns in "+call);
+    return exceeded;
   }
 
   class Mission{
     private int missionLead;
     private int fails2Fail;
     private int[] team;
-    private boolean[] vote;
-    private boolean[] fails;
+    private int teamMask; //bitmasks of the team, the players that voted for it and the players that failed it
+    private int voteMask;
+    private int failMask;
+    private int voteNum;
+    private int failNum;
 
     public Mission(){
-      missionLead = leader++;
-      leader = leader%players.length;
-      int teamSize = missionNum[players.length-5][round];
-      fails2Fail = failsRequired(players.length, round);
-      team = players[missionLead].proposeMission(teamSize, fails2Fail);
-      if(!teamOk(team)){
-        team  = backup.proposeMission(teamSize, fails2Fail);
-        log("Invalid mission: "+teamString(team)+" proposed.");
-        log("Random mission substituted.");
+      team = new int[0];
+    }
+
+    /**
+     * Asks the leader for a team, overwriting whatever this mission held in a previous game.
+     * */
+    void propose(){
+      missionLead = state.getLeader();
+      int teamSize = state.teamSize();
+      fails2Fail = state.failsRequired();
+      if(team.length != teamSize) team = new int[teamSize];
+      MaskAgent lead = maskAgents[missionLead];
+      long start = stopwatchOn();
+      if(lead != null){
+        teamMask = lead.proposeMissionMask(teamSize, fails2Fail);
+        boolean late = stopwatchOff(start, AgentTimer.Call.PROPOSE_MISSION, missionLead);
+        if(late || !teamOk(teamMask)){
+          if(logging && !late) log("Invalid mission: "+teamString(Bits.toArray(teamMask))+" proposed.");
+          teamMask = backup.proposeMissionMask(teamSize, fails2Fail);
+          if(logging) log("Random mission substituted.");
+        }
+        Bits.toArray(teamMask, team);
       }
-      log("Mission: "+teamString(team)+" proposed by "+missionLead);
-      vote = new boolean[players.length];
-      String voteString = "";
-      for(int i = 0; i<players.length; i++)
-        if(vote[i] = players[i].vote(team.clone(), missionLead)) voteString+=i+" ";
-      for(int i = 0; i< players.length; i++)
-        players[i].voteOutcome(team, missionLead, vote.clone());
+      else{
+        int[] proposed = players[missionLead].proposeMission(teamSize, fails2Fail);
+        boolean late = stopwatchOff(start, AgentTimer.Call.PROPOSE_MISSION, missionLead);
+        if(late || !teamOk(proposed)){
+          if(logging && !late) log("Invalid mission: "+teamString(proposed)+" proposed.");
+          Bits.toArray(backup.proposeMissionMask(teamSize, fails2Fail), team);
+          if(logging) log("Random mission substituted.");
+        }
+        else System.arraycopy(proposed, 0, team, 0, teamSize); //keeps the order the leader proposed
+        teamMask = Bits.mask(team);
+      }
+      if(logging) log("Mission: "+teamString(team)+" proposed by "+missionLead);
+      voteMask = 0;
+      voteNum = 0;
+      failMask = 0;
+      failNum = 0;
+      if(listener != null) listener.proposed(Game.this, missionLead, teamMask);
+    }
+
+    /**
+     * Asks everyone to vote on the team.
+     * */
+    void vote(){
+      for(int i = 0; i<players.length; i++){
+        long start = stopwatchOn();
+        boolean vote = maskAgents[i] != null ? maskAgents[i].voteMask(teamMask, missionLead)
+                                             : players[i].vote(teamView(team), missionLead);
+        if(stopwatchOff(start, AgentTimer.Call.VOTE, i)) vote = backup.voteMask(teamMask, missionLead);
+        if(vote) voteMask |= 1<<i;
+      }
+      voteNum = Integer.bitCount(voteMask);
+      state.vote(voteMask);
+      for(int i = 0; i< players.length; i++){
+        long start = stopwatchOn();
+        if(maskAgents[i] != null) maskAgents[i].voteOutcomeMask(teamMask, missionLead, voteMask);
+        else players[i].voteOutcome(teamView(team), missionLead, voteView(voteMask));
+        stopwatchOff(start, AgentTimer.Call.VOTE_OUTCOME, i);
+      }
+      if(listener != null) listener.voted(Game.this, teamMask, voteMask, approved());
       if(approved()){
-        log("Mission approved, votes for: "+voteString);
-        fails = new boolean[players.length];
-        int failNum = 0;
-        for(int i = 0; i<team.length; i++)
-          if(isSpy(team[i]) && (fails[team[i]] = players[team[i]].betray(team.clone(), missionLead))) failNum++;
-        for(int i = 0; i<players.length; i++)
-          players[i].missionOutcome(team.clone(), missionLead, failNum, isSuccess());
-        log("Mission "+(isSuccess()?"succeeded":"failed")+" with "+failNum+" fails.");
+        if(logging) log("Mission approved, votes for: "+voteString());
+      }
+      else{
+        if(logging) log("Mission not approved, votes for: "+voteString());
+        record();
       }
-      else log("Mission not approved, votes for: "+voteString);
+    }
+
+    /**
+     * Asks the spies on the approved team whether to betray it, and tells everyone the outcome.
+     * */
+    void execute(){
+      //only the spies on the team are asked to betray, lowest index first
+      for(int spiesOn = teamMask & spyMask; spiesOn != 0; spiesOn &= spiesOn-1){
+        int spy = Integer.numberOfTrailingZeros(spiesOn);
+        long start = stopwatchOn();
+        boolean fail = maskAgents[spy] != null ? maskAgents[spy].betrayMask(teamMask, missionLead)
+                                               : players[spy].betray(teamView(team), missionLead);
+        if(stopwatchOff(start, AgentTimer.Call.BETRAY, spy)) fail = backup.betrayMask(teamMask, missionLead);
+        if(fail) failMask |= 1<<spy;
+      }
+      failNum = Integer.bitCount(failMask);
+      state.mission(failNum);
+      for(int i = 0; i<players.length; i++){
+        long start = stopwatchOn();
+        if(maskAgents[i] != null) maskAgents[i].missionOutcomeMask(teamMask, missionLead, failNum, isSuccess());
+        else players[i].missionOutcome(teamView(team), missionLead, failNum, isSuccess());
+        stopwatchOff(start, AgentTimer.Call.MISSION_OUTCOME, i);
+      }
+      if(logging) log("Mission "+(isSuccess()?"succeeded":"failed")+" with "+failNum+" fails.");
+      if(listener != null) listener.executed(Game.this, teamMask, failNum, isSuccess());
+      record();
+    }
+
+    /**
+     * Adds the mission to the trace, if the game is being traced.
+     * */
+    private void record(){
+      if(trace != null) record.addMission(round, missionLead, teamMask, voteMask, approved()?failNum:-1);
     }
 
     //helper method to report if agent's are spies.
     boolean isSpy(int agent){
-      boolean spy = false;
-      for(int i = 0; i< spies.length; i++)
-        spy = spy || spies[i]==agent;
-      return spy;
+      return (spyMask & 1<<agent) != 0;
     }
 
-    public boolean approved(){
-      int voteNum = 0;
+    private String voteString(){
+      String voteString = "";
       for(int i = 0; i<players.length; i++)
-        if(vote[i])voteNum++;
+        if((voteMask & 1<<i) != 0) voteString+=i+" ";
+      return voteString;
+    }
+
+    public boolean approved(){
       return 2*voteNum > players.length;
     }
 
@@ -314,45 +702,72 @@ public class Game{
 
     public int getLeader(){return missionLead;}
 
-    public boolean[] getVotes(){return vote.clone();}
+    public boolean[] getVotes(){
+      boolean[] votes = new boolean[players.length];
+      Bits.toFlags(voteMask, votes);
+      return votes;
+    }
+
+    /**
+     * @return the team as a bitmask, bit i is set iff player i is on the team
+     * */
+    public int getTeamMask(){return teamMask;}
+
+    /**
+     * @return the players that voted for the mission as a bitmask
+     * */
+    public int getVoteMask(){return voteMask;}
 
     public boolean isSuccess(){
-      int failNum = 0;
-      for(int i = 0; i<team.length; i++)
-        if(!approved() || fails[team[i]]) failNum++;
-      return failNum<fails2Fail;
+      return !approved() ? team.length<fails2Fail : failNum<fails2Fail;
     }
 
     public boolean teamOk(int[] team){
-      boolean[] in = new boolean[players.length];
-      boolean ok = team.length==missionNum[players.length-5][round];
-      for(int i =0; i<team.length; i++){
-        ok = ok && team[i]>=0 && team[i]<players.length && !in[team[i]];
-        in[team[i]] = true;
+      boolean ok = team.length==GameState.missionSize(players.length, round);
+      int in = 0;
+      for(int i =0; ok && i<team.length; i++){
+        ok = team[i]>=0 && team[i]<players.length && (in & 1<<team[i])==0;
+        if(ok) in |= 1<<team[i];
       }
       return ok;
     }
 
+    /**
+     * Checks a team proposed as a bitmask: the right number of players, and only players in the game.
+     * */
+    public boolean teamOk(int team){
+      return Integer.bitCount(team)==GameState.missionSize(players.length, round) && (team & ~Bits.all(players.length))==0;
+    }
+
   }
 
   /**
-   * An inner class for managing a round.
-   * Like Mission, it is immutable after creation.
+   * An inner class for managing a round; its missions are played by Game.step.
+   * Like Mission, it is immutable once played, until it is played again in the next game.
    * **/
   class Round{
     Mission[] missions;
     int mNum;
 
     public Round(){
-      missions = new Mission[5];
-      mNum = 0;
-      missions[0] = new Mission();
-      while(mNum<4 && !missions[mNum].approved())
-        missions[++mNum] = new Mission();
-      for(int i = 0; i<players.length; i++)
-        players[i].roundOutcome(round+1, round+1-(getScore()+(successful()?1:0)));
-      log("Resistance "+(successful()?"won":"lost")+" round "+(round+1));
-      log((getScore()+(successful()?1:0)) + " rounds of "+(round+1)+" successful.");
+      missions = new Mission[GameState.MISSIONS_PER_ROUND];
+      for(int i = 0; i<missions.length; i++) missions[i] = new Mission();
+    }
+
+    /**
+     * Tells everyone the round is over, once a mission has been approved and played or the fifth rejected.
+     * */
+    void end(){
+      for(int i = 0; i<players.length; i++){
+        long start = stopwatchOn();
+        players[i].roundOutcome(round+1, state.getLosses());
+        stopwatchOff(start, AgentTimer.Call.ROUND_OUTCOME, i);
+      }
+      if(logging){
+        log("Resistance "+(successful()?"won":"lost")+" round "+(round+1));
+        log(state.getWins() + " rounds of "+(round+1)+" successful.");
+      }
+      if(listener != null) listener.roundEnded(Game.this, round, successful());
     }
 
     public boolean successful(){
@@ -360,7 +775,7 @@ public class Game{
     }
 
     public Mission[] getMissions(){
-      return missions.clone();
+      return Arrays.copyOf(missions, mNum+1);
     }
   }
 
@@ -369,24 +784,14 @@ public class Game{
    * Sets up game with random agents and plays
    **/
   public static void main(String[] args){
-    //-------------------------------------------------------
-    //Uncomment for amateur environment simulation
-    //-------------------------------------------------------
-    Agent[] agents = {Baerule.init(),
-            BasicRebel.init(),
-            BasicRebel.init(),
-            BasicRebel.init(),
-            BasicRebel.init()};
-
-    //-------------------------------------------------------
-    //Uncomment for random environment simulation
-    //-------------------------------------------------------
-//    Agent[] agents = {Baerule.init(),
-//            BasicRebel.init(),
-//            RandomAgent.init(),
-//            RandomAgent.init(),
-//            RandomAgent.init()};
-
-    Game game = new Game("research_log_game.txt",agents);
+    //Pass a seed from a previous log to replay that game, the environment it was played in, and its index if logged
+    long seed = args.length > 0 ? Long.parseLong(args[0]) : new SplittableRandom().nextLong();
+    long index = args.length > 2 ? Long.parseLong(args[2]) : 0;
+    ExperimentSpec spec = ExperimentSpec.named(args.length > 1 ? args[1] : "amateur", seed);
+    Game game = new Game(spec.numPlayers());
+    game.setSpyAllocation(spec.spyAllocation());
+    game.setLogFile("research_log_game.txt");
+    game.play(spec.lineUp().get(), seed, index);
+    LogSink.shared().flush();
   }
 }
\ No newline at end of file
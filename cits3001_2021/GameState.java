@@ -0,0 +1,235 @@
+package cits3001_2021;
+
+/**
+ * The rules of The Resistance and the state they act on, without any agents, logs or missions: the number of players
+ * and spies, the team size and fails required for each round, who leads next, and how many missions have been
+ * rejected in the round. A state is a handful of ints, so it can be copied with copyFrom and stepped without
+ * allocating, which lets agents play out hundreds of thousands of games per decision from the state they see.
+ *
+ * Game plays every game on a GameState, and MonteCarloAgent keeps one for what it knows of the game and copies it for
+ * each rollout. A round ends when a mission is approved and played, or when the fifth mission of the round is rejected,
+ * which loses the round.
+ */
+public class GameState {
+
+    private static final int[] SPY_NUM = {2, 2, 3, 3, 3, 4}; //SPY_NUM[n-5] is the number of spies in an n player game
+    private static final int[][] MISSION_NUM = {{2, 3, 2, 3, 3}, {2, 3, 4, 3, 4}, {2, 3, 3, 4, 4}, {3, 4, 4, 5, 5},
+            {3, 4, 4, 5, 5}, {3, 4, 4, 5, 5}}; //MISSION_NUM[n-5][i] is the team size of round i with n players
+
+    /** Missions that can be rejected in a round; rejecting the last one loses the round. */
+    public static final int MISSIONS_PER_ROUND = 5;
+
+    private int numPlayers;
+    private int spies; //Bitmask of the spies, 0 if they are not known
+    private int round; //Rounds complete, 5 once the game is over
+    private int wins; //Rounds the resistance won
+    private int losses;
+    private int rejects; //Missions rejected in the current round
+    private int leader; //Leader of the next mission
+
+
+    /**
+     * @return The number of spies in a game of the given size.
+     */
+    public static int spyNum(int numPlayers) {
+        return SPY_NUM[numPlayers - 5];
+    }
+
+
+    /**
+     * @param numPlayers The number of players, from 5 to 10.
+     * @param round      The round, from 0 to 4.
+     * @return The number of players sent on the mission of the round, from 2 to 5.
+     */
+    public static int missionSize(int numPlayers, int round) {
+        return MISSION_NUM[numPlayers - 5][round];
+    }
+
+
+    /**
+     * @param numPlayers The number of players, from 5 to 10.
+     * @param round      The round, from 0 to 4.
+     * @return The number of fails needed to fail the mission of the round: 2 in the fourth round with 7 or more
+     *         players, otherwise 1.
+     */
+    public static int failsRequired(int numPlayers, int round) {
+        return numPlayers > 6 && round == 3 ? 2 : 1;
+    }
+
+
+    /**
+     * Creates the state at the start of a game.
+     * @param numPlayers The number of players in the game.
+     * @param spies      The spies as a bitmask, or 0 if they are not known.
+     */
+    public GameState(int numPlayers, int spies) {
+        reset(numPlayers, spies);
+    }
+
+
+    /**
+     * Goes back to the start of a game, with the first player leading.
+     * @param numPlayers The number of players in the game.
+     * @param spies      The spies as a bitmask, or 0 if they are not known.
+     */
+    public void reset(int numPlayers, int spies) {
+        if (numPlayers < 5) throw new RuntimeException("Too few players");
+        if (numPlayers > 10) throw new RuntimeException("Too many players");
+        this.numPlayers = numPlayers;
+        this.spies = spies;
+        round = 0;
+        wins = 0;
+        losses = 0;
+        rejects = 0;
+        leader = 0;
+    }
+
+
+    /**
+     * Makes this state a copy of another one.
+     */
+    public void copyFrom(GameState other) {
+        numPlayers = other.numPlayers;
+        spies = other.spies;
+        round = other.round;
+        wins = other.wins;
+        losses = other.losses;
+        rejects = other.rejects;
+        leader = other.leader;
+    }
+
+
+    /**
+     * Sets who the spies are, e.g. to play out a guess of them.
+     * @param spies The spies as a bitmask.
+     */
+    public void setSpies(int spies) {
+        this.spies = spies;
+    }
+
+
+    /**
+     * Counts the votes on the current leader's team and passes the lead on. A rejected team counts towards the
+     * missions rejected in the round, and the fifth one loses the round.
+     * @param votes The players that voted for the team, as a bitmask.
+     * @return True iff the team was approved, and the mission should be played.
+     */
+    public boolean vote(int votes) {
+        leader = (leader + 1) % numPlayers;
+        if (2 * Integer.bitCount(votes) > numPlayers) return true;
+        if (++rejects == MISSIONS_PER_ROUND) endRound(false);
+        return false;
+    }
+
+
+    /**
+     * Plays the approved mission of the round, ending the round.
+     * @param fails The number of fails played on the mission.
+     */
+    public void mission(int fails) {
+        endRound(fails < failsRequired());
+    }
+
+
+    private void endRound(boolean success) {
+        if (success) wins++;
+        else losses++;
+        round++;
+        rejects = 0;
+    }
+
+
+    public int getNumPlayers() {
+        return numPlayers;
+    }
+
+
+    /**
+     * @return The spies as a bitmask, or 0 if they are not known.
+     */
+    public int getSpies() {
+        return spies;
+    }
+
+
+    public boolean isSpy(int player) {
+        return (spies & 1 << player) != 0;
+    }
+
+
+    /**
+     * @return The number of rounds complete, which is also the index of the current round.
+     */
+    public int getRound() {
+        return round;
+    }
+
+
+    /**
+     * @return The number of rounds the resistance won.
+     */
+    public int getWins() {
+        return wins;
+    }
+
+
+    /**
+     * @return The number of rounds the resistance lost.
+     */
+    public int getLosses() {
+        return losses;
+    }
+
+
+    /**
+     * @return The number of missions rejected so far in the current round.
+     */
+    public int getRejects() {
+        return rejects;
+    }
+
+
+    public int getLeader() {
+        return leader;
+    }
+
+
+    /**
+     * @return The team size of the current round.
+     */
+    public int teamSize() {
+        return missionSize(numPlayers, round);
+    }
+
+
+    /**
+     * @return The fails needed to fail the mission of the current round.
+     */
+    public int failsRequired() {
+        return failsRequired(numPlayers, round);
+    }
+
+
+    /**
+     * @return True once either side has won 3 rounds; the rest of the rounds cannot change the winner.
+     */
+    public boolean isDecided() {
+        return wins > 2 || losses > 2;
+    }
+
+
+    /**
+     * @return True once all 5 rounds have been played.
+     */
+    public boolean isOver() {
+        return round == 5;
+    }
+
+
+    /**
+     * @return True iff the resistance has won 3 rounds.
+     */
+    public boolean resistanceWon() {
+        return wins > 2;
+    }
+}
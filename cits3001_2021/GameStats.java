@@ -0,0 +1,157 @@
+package cits3001_2021;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Streams the statistics of the games it listens to, keeping only running counts: the win rate of every kind of agent,
+ * how many spies Baerule and BasicRebel identify, and how often each round's mission fails. Every figure comes with a
+ * 95% interval (Wilson for rates, Welford's variance for means), so a run can be stopped as soon as the figures it is
+ * after are precise enough, instead of after a fixed number of games.
+ *
+ * A GameStats is a Game.Listener for one thread; Tournament gives each shard its own and merges them into its result.
+ */
+public class GameStats implements Game.Listener {
+
+    private final Map<String, Proportion> wins = new TreeMap<>(); //Keyed by the class of the agent
+    private final Proportion[] roundFails = new Proportion[5];
+    private final RunningStats baerule = new RunningStats(); //Spies identified per game
+    private final RunningStats basicRebel = new RunningStats();
+    private final Proportion baeruleBoth = new Proportion(); //Games where both spies were identified
+    private final Proportion basicRebelBoth = new Proportion();
+    private long games;
+
+
+    public GameStats() {
+        for (int i = 0; i < roundFails.length; i++) roundFails[i] = new Proportion();
+    }
+
+
+    @Override
+    public void roundEnded(Game game, int round, boolean success) {
+        roundFails[round].add(!success);
+    }
+
+
+    @Override
+    public void gameOver(Game game, int score) {
+        games++;
+        boolean resistanceWon = score > 2;
+        int spies = game.getSpyMask();
+        for (int i = 0; i < game.getNumPlayers(); i++) {
+            Agent agent = game.getPlayer(i);
+            if (agent instanceof DeadlineAgent hosted) agent = hosted.getAgent();
+            boolean won = Bits.contains(spies, i) != resistanceWon;
+            wins.computeIfAbsent(agent.getClass().getSimpleName(), kind -> new Proportion()).add(won);
+        }
+        int identified = game.determinedSpies(true);
+        baerule.add(identified);
+        baeruleBoth.add(identified == 2);
+        identified = game.determinedSpies(false);
+        basicRebel.add(identified);
+        basicRebelBoth.add(identified == 2);
+    }
+
+
+    /**
+     * Adds the games of another GameStats into this one.
+     * @return These stats.
+     */
+    public GameStats merge(GameStats other) {
+        other.wins.forEach((kind, rate) -> wins.computeIfAbsent(kind, k -> new Proportion()).merge(rate));
+        for (int i = 0; i < roundFails.length; i++) roundFails[i].merge(other.roundFails[i]);
+        baerule.merge(other.baerule);
+        basicRebel.merge(other.basicRebel);
+        baeruleBoth.merge(other.baeruleBoth);
+        basicRebelBoth.merge(other.basicRebelBoth);
+        games += other.games;
+        return this;
+    }
+
+
+    /**
+     * @return The number of games listened to.
+     */
+    public long getGames() {
+        return games;
+    }
+
+
+    /**
+     * @param kind Simple class name of the agent, e.g. "BasicRebel".
+     * @return How often agents of that class won, whichever side they were on.
+     */
+    public Proportion getWins(String kind) {
+        return wins.getOrDefault(kind, new Proportion());
+    }
+
+
+    /**
+     * @param round Round from 0 to 4.
+     * @return How often the round was lost, by a failed mission or five rejected ones.
+     */
+    public Proportion getRoundFails(int round) {
+        return roundFails[round];
+    }
+
+
+    /**
+     * @return The number of spies Baerule identified per game.
+     */
+    public RunningStats getBaerule() {
+        return baerule;
+    }
+
+
+    /**
+     * @return The number of spies BasicRebel identified per game.
+     */
+    public RunningStats getBasicRebel() {
+        return basicRebel;
+    }
+
+
+    /**
+     * @return How often Baerule identified both spies.
+     */
+    public Proportion getBaeruleBoth() {
+        return baeruleBoth;
+    }
+
+
+    /**
+     * @return How often BasicRebel identified both spies.
+     */
+    public Proportion getBasicRebelBoth() {
+        return basicRebelBoth;
+    }
+
+
+    /**
+     * Checks whether the identification figures, which are what the experiment measures, are known precisely enough.
+     * @param halfWidth The widest 95% interval half-width allowed, on the rates of identifying both spies and on the
+     *                  mean number of spies identified.
+     * @return True iff every one of them is at least that precise.
+     */
+    public boolean isPrecise(double halfWidth) {
+        return games > 1 && baerule.getHalfWidth() <= halfWidth && basicRebel.getHalfWidth() <= halfWidth
+                && baeruleBoth.getHalfWidth() <= halfWidth && basicRebelBoth.getHalfWidth() <= halfWidth;
+    }
+
+
+    /**
+     * @return Every figure with its interval, one per line.
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder("Games: " + games + "\n");
+        wins.forEach((kind, rate) -> report.append("Win rate of ").append(kind).append(": ").append(rate).append('\n'));
+        report.append("Spies identified by Baerule: ").append(baerule).append('\n');
+        report.append("Spies identified by BasicRebel: ").append(basicRebel).append('\n');
+        report.append("Both spies identified by Baerule: ").append(baeruleBoth).append('\n');
+        report.append("Both spies identified by BasicRebel: ").append(basicRebelBoth).append('\n');
+        for (int i = 0; i < roundFails.length; i++) {
+            report.append("Round ").append(i + 1).append(" lost: ").append(roundFails[i]).append('\n');
+        }
+        return report.toString();
+    }
+}
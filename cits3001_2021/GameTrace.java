@@ -0,0 +1,222 @@
+package cits3001_2021;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * A compact binary record of every game played, so games can be analysed again without simulating them.
+ *
+ * The file starts with a magic number and version, followed by one record per game:
+ *   seed (long), number of players (byte), spies as a bitmask (short), number of missions (byte),
+ * and for every mission:
+ *   round (byte), leader (byte), team as a bitmask (short), votes for as a bitmask (short),
+ *   number of fails (byte, -1 if the mission was not approved).
+ *
+ * A game is at most 5 rounds of 5 missions, so a record is never more than 187 bytes. Games from several threads can
+ * share a trace; each record is written in one piece.
+ */
+public class GameTrace implements Closeable {
+
+    private static final int MAGIC = 0x52545231; //"RTR1"
+    private static final int VERSION = 1;
+    static final int MAX_MISSIONS = 25;
+
+    private final DataOutputStream out;
+
+
+    /**
+     * Creates a new trace file, replacing any file already there.
+     * @param file The file the games are written to.
+     */
+    public GameTrace(File file) throws IOException {
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+    }
+
+
+    /**
+     * Appends a finished game to the trace.
+     * @param record The game to write.
+     */
+    public synchronized void write(Record record) throws IOException {
+        out.writeLong(record.seed);
+        out.writeByte(record.numPlayers);
+        out.writeShort(record.spies);
+        out.writeByte(record.missions);
+        for (int i = 0; i < record.missions; i++) {
+            out.writeByte(record.round[i]);
+            out.writeByte(record.leader[i]);
+            out.writeShort(record.team[i]);
+            out.writeShort(record.votes[i]);
+            out.writeByte(record.fails[i]);
+        }
+    }
+
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+
+
+    /**
+     * Opens a trace for reading.
+     * @param file A file written by GameTrace.
+     * @return A reader positioned before the first game.
+     */
+    public static Reader read(File file) throws IOException {
+        return new Reader(file);
+    }
+
+
+    /**
+     * A single game in the trace. The reader overwrites the same record for every game, so copy anything that is
+     * needed after moving on to the next game.
+     */
+    public static class Record {
+        private long seed;
+        private int numPlayers;
+        private int spies;
+        private int missions;
+        private final byte[] round = new byte[MAX_MISSIONS];
+        private final byte[] leader = new byte[MAX_MISSIONS];
+        private final short[] team = new short[MAX_MISSIONS];
+        private final short[] votes = new short[MAX_MISSIONS];
+        private final byte[] fails = new byte[MAX_MISSIONS];
+
+        /**
+         * Starts recording a new game, dropping any missions recorded before.
+         */
+        void start(long seed, int numPlayers, int spies) {
+            this.seed = seed;
+            this.numPlayers = numPlayers;
+            this.spies = spies;
+            missions = 0;
+        }
+
+        /**
+         * Adds a mission to the game.
+         * @param fails Number of fails, or -1 if the mission was not approved.
+         */
+        void addMission(int round, int leader, int team, int votes, int fails) {
+            this.round[missions] = (byte) round;
+            this.leader[missions] = (byte) leader;
+            this.team[missions] = (short) team;
+            this.votes[missions] = (short) votes;
+            this.fails[missions] = (byte) fails;
+            missions++;
+        }
+
+        public long getSeed() { return seed; }
+
+        public int getNumPlayers() { return numPlayers; }
+
+        /** @return The spies as a bitmask; bit i is set iff player i is a spy. */
+        public int getSpies() { return spies; }
+
+        public boolean isSpy(int player) { return (spies & 1 << player) != 0; }
+
+        /** @return Number of missions proposed in the game, including the rejected ones. */
+        public int getMissions() { return missions; }
+
+        /** @return The round (0 to 4) mission i was proposed in. */
+        public int getRound(int i) { return round[i]; }
+
+        public int getLeader(int i) { return leader[i]; }
+
+        /** @return The team of mission i as a bitmask. */
+        public int getTeam(int i) { return team[i] & 0xFFFF; }
+
+        /** @return The players that voted for mission i as a bitmask. */
+        public int getVotes(int i) { return votes[i] & 0xFFFF; }
+
+        public boolean isApproved(int i) { return fails[i] >= 0; }
+
+        /** @return The number of fails on mission i, or -1 if it was not approved. */
+        public int getFails(int i) { return fails[i]; }
+    }
+
+
+    /**
+     * Streams the games of a trace one at a time, so any number of games can be read in constant memory.
+     */
+    public static class Reader implements Closeable {
+        private final DataInputStream in;
+        private final Record record = new Record();
+
+        private Reader(File file) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != MAGIC) throw new IOException("Not a game trace: " + file);
+            int version = in.readByte();
+            if (version != VERSION) throw new IOException("Unsupported trace version " + version);
+        }
+
+        /**
+         * Reads the next game into the record.
+         * @return False once there are no games left.
+         */
+        public boolean next() throws IOException {
+            long seed;
+            try {
+                seed = in.readLong();
+            } catch (EOFException e) {
+                return false;
+            }
+            record.start(seed, in.readUnsignedByte(), in.readUnsignedShort());
+            int missions = in.readUnsignedByte();
+            for (int i = 0; i < missions; i++) {
+                record.addMission(in.readByte(), in.readByte(), in.readShort(), in.readShort(), in.readByte());
+            }
+            return true;
+        }
+
+        /**
+         * @return The game read by the last call to next.
+         */
+        public Record record() {
+            return record;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+
+    /**
+     * Prints a short summary of a trace file.
+     */
+    public static void main(String[] args) throws IOException {
+        long games = 0, resistanceWins = 0, missions = 0, rejected = 0;
+        try (Reader reader = read(new File(args[0]))) {
+            while (reader.next()) {
+                Record game = reader.record();
+                int won = 0;
+                for (int i = 0; i < game.getMissions(); i++) {
+                    missions++;
+                    if (!game.isApproved(i)) rejected++;
+                    //A round is decided by its last mission, which is the one before the next round starts
+                    boolean last = i + 1 == game.getMissions() || game.getRound(i + 1) != game.getRound(i);
+                    int failsRequired = GameState.failsRequired(game.getNumPlayers(), game.getRound(i));
+                    if (last && game.isApproved(i) && game.getFails(i) < failsRequired) won++;
+                }
+                if (won > 2) resistanceWins++;
+                games++;
+            }
+        }
+        System.out.println("Games: " + games);
+        System.out.printf("Resistance won: %.2f%%%n", 100.0 * resistanceWins / Math.max(games, 1));
+        System.out.printf("Missions per game: %.2f, rejected: %.2f%%%n",
+                (double) missions / Math.max(games, 1), 100.0 * rejected / Math.max(missions, 1));
+    }
+}
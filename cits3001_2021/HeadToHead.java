@@ -0,0 +1,222 @@
+package cits3001_2021;
+
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Compares two agents by playing them in paired games: the same opponents, seating, spies and random streams, with only
+ * the agent under test swapped. A pair where both won or both lost says nothing about which is better, so the evidence
+ * is in the discordant pairs, where exactly one of them won: each pair scores +1 if only A won, -1 if only B won and 0
+ * otherwise, and its mean is how much higher A's win rate is than B's.
+ *
+ * After every pair two sequential probability ratio tests are updated on the scores, one for "A's win rate is at least
+ * delta higher" and one for the same of B, each against no difference. They use the normal approximation of the log
+ * likelihood ratio with the variance estimated from the pairs so far (the generalised SPRT used to test chess
+ * engines). The comparison stops as soon as one of them accepts its alternative, or both accept the null (the agents
+ * are within delta of each other), or the cap on pairs is reached. On agents that differ clearly this takes a few
+ * hundred pairs instead of fixed blocks of thousands of games, and the error rates stay close to alpha and beta.
+ * Identical agents never disagree on a pair, so the variance stays at its floor of 1/pairs and both tests accept the
+ * null once delta * pairs reaches sqrt(2 ln((1 - alpha) / beta)): after 49 pairs with the defaults.
+ *
+ * Pairs are played in parallel batches but tested in order, so the verdict and the number of pairs it took only depend
+ * on the seed, not on the number of threads; at most one batch is played past the point where the test stopped.
+ */
+public class HeadToHead {
+
+    /**
+     * The outcome of a comparison.
+     */
+    public enum Verdict {A_BETTER, B_BETTER, EQUIVALENT, INCONCLUSIVE}
+
+    private static final int BATCH = 256; //Pairs played in parallel between checks of the test
+    private static final int MIN_PAIRS = 32; //Pairs played before the variance is trusted enough to stop
+
+    private final Supplier<Agent> a;
+    private final Supplier<Agent> b;
+    private final Supplier<Agent[]> opponents;
+    private SpyAllocation spyAllocation = SpyAllocation.uniform();
+    private boolean alwaysResistance = false; //Whether the agent under test is never a spy
+    private double delta = 0.05;
+    private double alpha = 0.05;
+    private double beta = 0.05;
+    private int maxPairs = 100_000;
+
+
+    /**
+     * Sets up a comparison.
+     * @param a         Creates the first agent for a single game.
+     * @param b         Creates the second agent for a single game.
+     * @param opponents Creates the other players of a single game, 4 to 9 of them.
+     */
+    public HeadToHead(Supplier<Agent> a, Supplier<Agent> b, Supplier<Agent[]> opponents) {
+        this.a = a;
+        this.b = b;
+        this.opponents = opponents;
+    }
+
+
+    /**
+     * Sets how the spies are chosen; uniformly among every player by default, so both agents play both sides. The
+     * allocation should not tell A and B apart, or the pairs would no longer have the same spies.
+     */
+    public void setSpyAllocation(SpyAllocation spyAllocation) {
+        this.spyAllocation = spyAllocation;
+    }
+
+
+    /**
+     * Makes the agent under test always play resistance, with the spies chosen uniformly among the opponents instead
+     * of by the spy allocation; for agents like Baerule that have no spy play. The agent sits in the same seat in both
+     * games of a pair, so both games still have the same spies.
+     */
+    public void setAlwaysResistance(boolean alwaysResistance) {
+        this.alwaysResistance = alwaysResistance;
+    }
+
+
+    /**
+     * Sets the hypotheses and error rates of the test.
+     * @param delta How much higher an agent's win rate has to be to count as better, e.g. 0.05.
+     * @param alpha Chance of calling an agent better when the two are equal.
+     * @param beta  Chance of missing an agent that is better by delta.
+     */
+    public void setTest(double delta, double alpha, double beta) {
+        this.delta = delta;
+        this.alpha = alpha;
+        this.beta = beta;
+    }
+
+
+    /**
+     * Sets the most pairs played before giving up with an INCONCLUSIVE verdict.
+     */
+    public void setMaxPairs(int maxPairs) {
+        this.maxPairs = maxPairs;
+    }
+
+
+    /**
+     * The verdict of a comparison and the pairs it was based on.
+     * @param verdict     Which agent is better, if any.
+     * @param pairs       The number of pairs played until the test stopped.
+     * @param winsA       Games A won, out of pairs.
+     * @param winsB       Games B won, out of pairs.
+     * @param discordantA Pairs only A won.
+     * @param discordantB Pairs only B won.
+     */
+    public record Result(Verdict verdict, int pairs, int winsA, int winsB, int discordantA, int discordantB) {
+        @Override
+        public String toString() {
+            return String.format("%s after %d pairs: A won %d, B won %d, only A won %d, only B won %d", verdict, pairs,
+                    winsA, winsB, discordantA, discordantB);
+        }
+    }
+
+
+    /**
+     * Plays pairs until the test reaches a verdict.
+     * @param seed Seed of the comparison; pair i is played from Tournament.gameSeed(seed, i).
+     * @return The verdict.
+     */
+    public Result run(long seed) {
+        double accept = Math.log((1 - beta) / alpha);
+        double reject = Math.log(beta / (1 - alpha));
+
+        boolean nullA = false, nullB = false; //Whether each test has accepted that its agent is not better
+        int winsA = 0, winsB = 0, onlyA = 0, onlyB = 0;
+        for (int from = 0; from < maxPairs; from += BATCH) {
+            int to = Math.min(maxPairs, from + BATCH);
+            int[] outcomes = IntStream.range(from, to).parallel().map(i -> playPair(Tournament.gameSeed(seed, i), i))
+                    .toArray();
+            for (int i = 0; i < outcomes.length; i++) {
+                boolean wonA = (outcomes[i] & 1) != 0, wonB = (outcomes[i] & 2) != 0;
+                if (wonA) winsA++;
+                if (wonB) winsB++;
+                if (wonA && !wonB) onlyA++;
+                if (wonB && !wonA) onlyB++;
+                int pairs = from + i + 1;
+                if (pairs < MIN_PAIRS) continue;
+
+                //Log likelihood ratio of a mean score of +-delta against 0, with the scores taken as normal
+                double mean = (double) (onlyA - onlyB) / pairs;
+                double variance = Math.max((double) (onlyA + onlyB) / pairs - mean * mean, 1.0 / pairs);
+                double llrA = delta * pairs * (mean - delta / 2) / variance;
+                double llrB = delta * pairs * (-mean - delta / 2) / variance;
+                if (!nullA && llrA >= accept) return new Result(Verdict.A_BETTER, pairs, winsA, winsB, onlyA, onlyB);
+                if (!nullB && llrB >= accept) return new Result(Verdict.B_BETTER, pairs, winsA, winsB, onlyA, onlyB);
+                nullA |= llrA <= reject;
+                nullB |= llrB <= reject;
+                if (nullA && nullB) return new Result(Verdict.EQUIVALENT, pairs, winsA, winsB, onlyA, onlyB);
+            }
+        }
+        return new Result(Verdict.INCONCLUSIVE, maxPairs, winsA, winsB, onlyA, onlyB);
+    }
+
+
+    /**
+     * Plays the same game once with A and once with B.
+     * @return Bit 0 set iff A won, bit 1 set iff B won.
+     */
+    private int playPair(long seed, int index) {
+        return (won(a.get(), seed, index) ? 1 : 0) | (won(b.get(), seed, index) ? 2 : 0);
+    }
+
+
+    /**
+     * Plays a game with the agent as the first player of the line-up.
+     * @return True iff the agent's side won.
+     */
+    private boolean won(Agent agent, long seed, int index) {
+        Agent[] others = opponents.get();
+        Agent[] lineUp = new Agent[others.length + 1];
+        lineUp[0] = agent;
+        System.arraycopy(others, 0, lineUp, 1, others.length);
+        Game game = new Game(lineUp.length);
+        game.setSpyAllocation(alwaysResistance ? excludingSeatOf(agent) : spyAllocation);
+        game.play(lineUp, seed, index);
+        for (int i = 0; i < lineUp.length; i++) {
+            if (game.getPlayer(i) == agent) return Bits.contains(game.getSpyMask(), i) != game.getScore() > 2;
+        }
+        throw new IllegalStateException("Agent was not seated");
+    }
+
+
+    /**
+     * @return An allocation choosing the spies uniformly among every player but the given agent.
+     */
+    private static SpyAllocation excludingSeatOf(Agent agent) {
+        return new SpyAllocation() {
+            @Override
+            public int allocate(Agent[] players, int numSpies, SplittableRandom random) {
+                return SpyAllocation.sample(eligible(players), numSpies, random);
+            }
+
+            @Override
+            public int eligible(Agent[] players) {
+                int eligible = Bits.all(players.length);
+                for (int i = 0; i < players.length; i++) {
+                    if (players[i] == agent) eligible &= ~(1 << i);
+                }
+                return eligible;
+            }
+        };
+    }
+
+
+    /**
+     * Compares Baerule (A) with BasicRebel (B), each playing resistance with four BasicRebels, since Baerule has no
+     * spy play. Arguments: seed, and optionally delta.
+     */
+    public static void main(String[] args) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : new SplittableRandom().nextLong();
+        HeadToHead test = new HeadToHead(Baerule::init, BasicRebel::init, () -> new Agent[]{BasicRebel.init(),
+                BasicRebel.init(), BasicRebel.init(), BasicRebel.init()});
+        test.setAlwaysResistance(true);
+        if (args.length > 1) test.setTest(Double.parseDouble(args[1]), 0.05, 0.05);
+
+        long start = System.nanoTime();
+        Result result = test.run(seed);
+        System.out.printf("Seed %d: %s (%.1fs)%n", seed, result, (System.nanoTime() - start) / 1e9);
+    }
+}
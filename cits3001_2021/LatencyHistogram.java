@@ -0,0 +1,98 @@
+package cits3001_2021;
+
+/**
+ * A histogram of call latencies in nanoseconds, bucketed the way HdrHistogram does it: every power of two is split into
+ * 16 equal sub-buckets, so any recorded value is known to within 1/16 (about 6%) of itself while the whole range of a
+ * long fits in under a thousand counters. Recording is a couple of bit operations and an array increment.
+ *
+ * Not thread-safe; keep one per thread and add them together afterwards.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long total;
+    private long max;
+
+
+    /**
+     * Gets the bucket a value is counted in; values below 16 each get their own bucket.
+     */
+    private static int index(long nanos) {
+        if (nanos < SUB_BUCKETS) return (int) nanos;
+        int exp = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exp - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+
+    /**
+     * Gets the smallest value counted in a bucket.
+     */
+    private static long lowest(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int exp = index / SUB_BUCKETS + SUB_BITS - 1;
+        long sub = index % SUB_BUCKETS;
+        return (SUB_BUCKETS + sub) << (exp - SUB_BITS);
+    }
+
+
+    /**
+     * Counts a single call.
+     * @param nanos How long the call took.
+     */
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts[index(nanos)]++;
+        count++;
+        total += nanos;
+        if (nanos > max) max = nanos;
+    }
+
+
+    /**
+     * Adds the calls counted by another histogram into this one.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) counts[i] += other.counts[i];
+        count += other.count;
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+
+    public long getCount() {
+        return count;
+    }
+
+
+    public long getMax() {
+        return max;
+    }
+
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+
+    /**
+     * Gets the latency that the given fraction of calls were at or below, to the precision of the buckets.
+     * @param percentile Percentile between 0 and 100.
+     * @return The lowest value of the bucket the percentile falls in.
+     */
+    public long getPercentile(double percentile) {
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) return Math.min(lowest(i), max);
+        }
+        return max;
+    }
+}
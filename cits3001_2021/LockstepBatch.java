@@ -0,0 +1,405 @@
+package cits3001_2021;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Plays a population of games between BasicRebels and RandomAgents with the games laid out as a structure of arrays:
+ * one primitive array per field, with an entry for every game (and a table for every seat, for the BasicRebels'
+ * suspicion values). The games are played in lockstep, one proposal at a time: every game that is not over proposes a
+ * team, then every game votes, then every approved team goes on its mission, then every round that ended is scored.
+ * Each stage is a counted loop over the arrays with no Agent objects, virtual calls or copies of the game, so a shard
+ * of games stays in cache and the JIT can unroll the loops; counting the votes is plain arithmetic on int arrays.
+ *
+ * The agents are built in: a BasicRebel seat plays exactly as BasicRebel does, with the same suspicion values, the same
+ * stable ranking of the other players and the same votes, proposals and betrayals, and a RandomAgent seat flips a coin
+ * for every vote and betrayal and draws its teams uniformly. Only the random numbers differ from Game, since every seat
+ * of a game draws from the game's single stream. Like Game, every seating is shuffled and the spies are chosen
+ * uniformly among all players (SpyAllocation.uniform), from the game's seed Tournament.gameSeed(seed, g).
+ *
+ * After the games are played the batch counts the rounds the resistance won and the spies identified by the last
+ * BasicRebel on the resistance, the one Game.determinedSpies scores.
+ */
+public class LockstepBatch {
+
+    private static final int SHARD = 4096; //Games played in lockstep by one thread
+
+    private final int numPlayers;
+    private final int numRebels;
+    private final int size;
+
+    //One entry per game
+    private final int[] rebels; //Seats of the BasicRebels as a bitmask
+    private final int[] spies;
+    private final int[] leader;
+    private final int[] round; //Rounds complete, 5 once the game is over
+    private final int[] wins;
+    private final int[] rejects; //Missions rejected in the current round
+    private final int[] streak; //Votes failed in a row, which BasicRebel counts across rounds
+    private final int[] team;
+    private final int[] votes;
+    private final int[] fails; //Fails played on the approved mission, -1 if the team was rejected
+    private final long[] randoms;
+
+    //numPlayers entries per seat of every game, at (game * numPlayers + seat) * numPlayers
+    private final byte[] suspicion; //Suspicion values of a resistance BasicRebel, always whole and never negative
+    private final byte[] ranking; //The other players, least suspicious first, as in SuspicionTable
+
+
+    /**
+     * Creates a batch of games between the given numbers of BasicRebels and RandomAgents. Besides 48 bytes of counters
+     * and random stream, the suspicion and ranking tables take numPlayers^2 bytes each per game, so a batch is limited
+     * to Integer.MAX_VALUE / numPlayers^2 games, over 21 million with 10 players.
+     * @param numRebels  The number of BasicRebels in every game.
+     * @param numRandom  The number of RandomAgents in every game.
+     * @param size       The number of games.
+     */
+    public LockstepBatch(int numRebels, int numRandom, int size) {
+        numPlayers = numRebels + numRandom;
+        if (numPlayers < 5) throw new RuntimeException("Too few players");
+        if (numPlayers > 10) throw new RuntimeException("Too many players");
+        if (size < 0 || (long) size * numPlayers * numPlayers > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Cannot hold " + size + " games of " + numPlayers + " players");
+        }
+        this.numRebels = numRebels;
+        this.size = size;
+        rebels = new int[size];
+        spies = new int[size];
+        leader = new int[size];
+        round = new int[size];
+        wins = new int[size];
+        rejects = new int[size];
+        streak = new int[size];
+        team = new int[size];
+        votes = new int[size];
+        fails = new int[size];
+        randoms = new long[size];
+        suspicion = new byte[size * numPlayers * numPlayers];
+        ranking = new byte[size * numPlayers * numPlayers];
+    }
+
+
+    /**
+     * Plays every game of the batch from the start, on every core.
+     * @param seed Seed of the batch; game g is played from Tournament.gameSeed(seed, g).
+     */
+    public void play(long seed) {
+        IntStream.range(0, (size + SHARD - 1) / SHARD).parallel()
+                .forEach(shard -> play(seed, shard * SHARD, Math.min(size, (shard + 1) * SHARD)));
+    }
+
+
+    /**
+     * Plays the games from index from (inclusive) to index to (exclusive) in lockstep.
+     */
+    private void play(long seed, int from, int to) {
+        start(seed, from, to);
+        int live = to - from;
+        while (live > 0) {
+            propose(from, to);
+            vote(from, to);
+            count(from, to);
+            execute(from, to);
+            live = endRound(from, to);
+        }
+    }
+
+
+    private void start(long seed, int from, int to) {
+        int all = Bits.all(numPlayers);
+        int numSpies = GameState.spyNum(numPlayers);
+        for (int g = from; g < to; g++) {
+            SplittableRandom random = new SplittableRandom(Tournament.gameSeed(seed, g));
+            rebels[g] = SpyAllocation.sample(all, numRebels, random); //The seating, shuffled
+            spies[g] = SpyAllocation.sample(all, numSpies, random);
+            randoms[g] = random.nextLong();
+            leader[g] = 0;
+            round[g] = 0;
+            wins[g] = 0;
+            rejects[g] = 0;
+            streak[g] = 0;
+            //Only the BasicRebels on the resistance keep suspicion values
+            for (int seats = rebels[g] & ~spies[g]; seats != 0; seats &= seats - 1) {
+                int seat = Integer.numberOfTrailingZeros(seats);
+                int table = (g * numPlayers + seat) * numPlayers;
+                int index = 0;
+                for (int i = 0; i < numPlayers; i++) {
+                    suspicion[table + i] = 0;
+                    if (i != seat) ranking[table + index++] = (byte) i;
+                }
+            }
+        }
+    }
+
+
+    //---------------------------------------------------------------------------
+    // Stages, each over every game that is not over
+    //---------------------------------------------------------------------------
+
+    private void propose(int from, int to) {
+        for (int g = from; g < to; g++) {
+            if (round[g] == 5) continue;
+            int lead = leader[g];
+            team[g] = (rebels[g] & 1 << lead) != 0 ? rebelPropose(g, lead) : randomTeam(g);
+        }
+    }
+
+
+    private void vote(int from, int to) {
+        int all = Bits.all(numPlayers);
+        for (int g = from; g < to; g++) {
+            if (round[g] == 5) continue;
+            int v = (int) PackedBatch.next(randoms, g) & all & ~rebels[g]; //A coin flip for every RandomAgent
+            for (int seats = rebels[g]; seats != 0; seats &= seats - 1) {
+                int seat = Integer.numberOfTrailingZeros(seats);
+                if (rebelVote(g, seat)) v |= 1 << seat;
+            }
+            votes[g] = v;
+        }
+    }
+
+
+    /**
+     * Counts the votes and passes the lead on, as GameState.vote does.
+     */
+    private void count(int from, int to) {
+        int n = numPlayers;
+        for (int g = from; g < to; g++) {
+            if (round[g] == 5) continue;
+            int approved = 2 * Integer.bitCount(votes[g]) > n ? 1 : 0;
+            int next = leader[g] + 1;
+            leader[g] = next == n ? 0 : next;
+            streak[g] = (streak[g] + 1) * (1 - approved);
+            rejects[g] += 1 - approved;
+            fails[g] = approved - 1;
+        }
+    }
+
+
+    private void execute(int from, int to) {
+        for (int g = from; g < to; g++) {
+            if (round[g] == 5 || fails[g] < 0) continue;
+            int t = team[g];
+            int betrayals = (int) PackedBatch.next(randoms, g) & ~rebels[g];
+            if (rebelBetrays(g)) betrayals |= rebels[g];
+            int f = Integer.bitCount(betrayals & t & spies[g]);
+            fails[g] = f;
+            boolean success = f < GameState.failsRequired(numPlayers, round[g]);
+            for (int seats = rebels[g] & ~spies[g]; seats != 0; seats &= seats - 1) {
+                rebelMissionOutcome(g, Integer.numberOfTrailingZeros(seats), t, f, success);
+            }
+        }
+    }
+
+
+    /**
+     * Ends the round of every game whose mission was played or whose fifth team was rejected.
+     * @return The number of games that are not over.
+     */
+    private int endRound(int from, int to) {
+        int live = 0;
+        for (int g = from; g < to; g++) {
+            if (round[g] == 5) continue;
+            if (fails[g] >= 0 || rejects[g] == GameState.MISSIONS_PER_ROUND) {
+                if (fails[g] >= 0 && fails[g] < GameState.failsRequired(numPlayers, round[g])) wins[g]++;
+                round[g]++;
+                rejects[g] = 0;
+            }
+            if (round[g] < 5) live++;
+        }
+        return live;
+    }
+
+
+    //---------------------------------------------------------------------------
+    // RandomAgent
+    //---------------------------------------------------------------------------
+
+    private int randomTeam(int g) {
+        return fill(g, 0, GameState.missionSize(numPlayers, round[g]));
+    }
+
+
+    /**
+     * Fills a team up to its size with players drawn uniformly among those not on it yet, as TeamSampler.fill does.
+     */
+    private int fill(int g, int t, int size) {
+        int pool = Bits.all(numPlayers) & ~t;
+        for (int left = Integer.bitCount(pool); Integer.bitCount(t) < size; left--) {
+            int member = 1 << TeamSampler.select(pool, nextInt(g, left));
+            t |= member;
+            pool &= ~member;
+        }
+        return t;
+    }
+
+
+    //---------------------------------------------------------------------------
+    // BasicRebel, with its currentRound being round[g] + 1 and its roundsLost the rounds lost so far
+    //---------------------------------------------------------------------------
+
+    private int rebelPropose(int g, int seat) {
+        int teamSize = GameState.missionSize(numPlayers, round[g]);
+        if ((spies[g] & 1 << seat) != 0) {
+            //If losing, adds itself in the team, then randomly chooses the rest of the players
+            int currentRound = round[g] + 1;
+            int roundsLost = round[g] - wins[g];
+            return fill(g, currentRound > 2 && roundsLost < 2 ? 1 << seat : 0, teamSize);
+        }
+        //Itself, and the players ranked 1 to teamSize - 1
+        int table = sort(g, seat);
+        int t = 1 << seat;
+        for (int i = 1; i < teamSize; i++) t |= 1 << ranking[table + i];
+        return t;
+    }
+
+
+    private boolean rebelVote(int g, int seat) {
+        int t = team[g];
+        int currentRound = round[g] + 1;
+        int roundsLost = round[g] - wins[g];
+        if ((spies[g] & 1 << seat) != 0) {
+            //Its comrades include itself
+            return leader[g] == seat || streak[g] > 4 || (t & spies[g]) != 0 || currentRound == 1;
+        }
+        if (streak[g] >= 5) return true;
+        boolean isParanoid = currentRound >= 2 && roundsLost >= 2;
+        if (isParanoid && (leader[g] == seat || (t & 1 << seat) != 0)) return true;
+        int table = (g * numPlayers + seat) * numPlayers;
+        int limit = isParanoid ? 1 : 3;
+        for (int others = t & ~(1 << seat); others != 0; others &= others - 1) {
+            if (suspicion[table + Integer.numberOfTrailingZeros(others)] > limit) return false;
+        }
+        return true;
+    }
+
+
+    /**
+     * @return Whether every BasicRebel spy of the game betrays the current mission; they all decide alike, since a
+     * BasicRebel counts itself among its comrades.
+     */
+    private boolean rebelBetrays(int g) {
+        int currentRound = round[g] + 1;
+        int roundsLost = round[g] - wins[g];
+        return (currentRound > 2 && roundsLost < 3) || currentRound == 2 || currentRound > 3;
+    }
+
+
+    private void rebelMissionOutcome(int g, int seat, int t, int numFails, boolean success) {
+        int table = (g * numPlayers + seat) * numPlayers;
+        int susValue = success ? -1 : 1;
+        susValue += numFails > 1 ? 2 : 0;
+
+        for (int players = t & ~(1 << seat); players != 0; players &= players - 1) {
+            int player = Integer.numberOfTrailingZeros(players);
+            if (numFails < 2) {
+                //Don't make the sus value < 0
+                if (susValue == -1 && suspicion[table + player] != 0) suspicion[table + player] += susValue;
+                else if (susValue > 0) suspicion[table + player] += susValue;
+            }
+            else suspicion[table + player] += susValue;
+        }
+
+        int lead = lastLeader(g);
+        if (lead == seat) return;
+        if (susValue == -1 && suspicion[table + lead] != 0) suspicion[table + lead] += susValue;
+        else if (susValue >= 1) suspicion[table + lead] += (t & 1 << lead) != 0 ? 2 : 1;
+    }
+
+
+    /**
+     * @return The leader who proposed the mission just played, the one before the current leader.
+     */
+    private int lastLeader(int g) {
+        return leader[g] == 0 ? numPlayers - 1 : leader[g] - 1;
+    }
+
+
+    /**
+     * Sorts a seat's ranking in ascending order of suspicion, keeping the previous order of equal values, as
+     * SuspicionTable does whenever the ranking is read.
+     * @return The index of the seat's table.
+     */
+    private int sort(int g, int seat) {
+        int table = (g * numPlayers + seat) * numPlayers;
+        for (int i = 1; i < numPlayers - 1; i++) {
+            byte id = ranking[table + i];
+            int key = suspicion[table + id];
+            int j = i - 1;
+            while (j >= 0 && suspicion[table + ranking[table + j]] > key) {
+                ranking[table + j + 1] = ranking[table + j];
+                j--;
+            }
+            ranking[table + j + 1] = id;
+        }
+        return table;
+    }
+
+
+    private int nextInt(int g, int bound) {
+        return PackedBatch.nextInt(PackedBatch.next(randoms, g), bound);
+    }
+
+
+    //---------------------------------------------------------------------------
+    // Results
+    //---------------------------------------------------------------------------
+
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * @return wins[w] is the number of games the resistance won w rounds in, for w from 0 to 5.
+     */
+    public int[] countWins() {
+        int[] count = new int[6];
+        for (int g = 0; g < size; g++) count[wins[g]]++;
+        return count;
+    }
+
+
+    /**
+     * Counts how many spies the last BasicRebel on the resistance identified in each game, comparing its two most
+     * suspected players with the spies as Game.determinedSpies does.
+     * @return identified[k] is the number of games it identified k spies in; games without a BasicRebel on the
+     * resistance are left out.
+     */
+    public int[] countIdentified() {
+        int[] identified = new int[3];
+        int[] sortedSpies = new int[GameState.spyNum(numPlayers)];
+        for (int g = 0; g < size; g++) {
+            int resistance = rebels[g] & ~spies[g];
+            if (resistance == 0) continue;
+            int seat = 31 - Integer.numberOfLeadingZeros(resistance);
+            int table = sort(g, seat);
+            int a = ranking[table + numPlayers - 2], b = ranking[table + numPlayers - 3];
+            Bits.toArray(spies[g], sortedSpies);
+            identified[(sortedSpies[0] == Math.min(a, b) ? 1 : 0) + (sortedSpies[1] == Math.max(a, b) ? 1 : 0)]++;
+        }
+        return identified;
+    }
+
+
+    /**
+     * Plays a batch of games and reports how fast they were played, how often the resistance won and how many spies
+     * BasicRebel identified. Arguments: seed, number of BasicRebels, number of RandomAgents and number of games.
+     */
+    public static void main(String[] args) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : new SplittableRandom().nextLong();
+        int numRebels = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        int numRandom = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        int games = args.length > 3 ? Integer.parseInt(args[3]) : 1_000_000;
+
+        LockstepBatch batch = new LockstepBatch(numRebels, numRandom, games);
+        long start = System.nanoTime();
+        batch.play(seed);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Seed %d, %d games of %d BasicRebels and %d RandomAgents in %.2fs (%.1f million games/min)%n",
+                seed, games, numRebels, numRandom, seconds, games / seconds * 60 / 1e6);
+        System.out.println("Rounds won by the resistance: " + Arrays.toString(batch.countWins()));
+        System.out.println("Spies BasicRebel identified: " + Arrays.toString(batch.countIdentified()));
+    }
+}
@@ -0,0 +1,239 @@
+package cits3001_2021;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Appends lines to log files from a single background thread. Callers only put the line in a bounded queue, and the
+ * writer thread keeps every file open with a buffer, writing the lines in batches and flushing once the queue is empty.
+ * Lines to the same file are written in the order they were logged.
+ *
+ * Game and Experiment both log through the shared sink, which is flushed and closed when the JVM shuts down. Lines
+ * are queued under a read lock and close takes the write lock, so every line queued before close is written before the
+ * writer stops. Lines logged after close, by games still running while the JVM shuts down, are appended to their
+ * files straight away.
+ */
+public class LogSink {
+
+    private static final int CAPACITY = 8192; //Lines that can be waiting before callers have to wait for the writer
+    private static final LogSink SHARED = new LogSink(CAPACITY);
+
+    private final BlockingQueue<Line> queue;
+    private final Map<File, Writer> files = new HashMap<>(); //Only touched by the writer thread
+    private final Thread writer;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock(); //Read to queue a line, write to close
+    private boolean closed = false; //Guarded by lock
+
+
+    /**
+     * A line to write. Lines with a latch are requests instead; to flush if msg is null, otherwise to stop.
+     */
+    private static final class Line {
+        final File file;
+        final String msg;
+        final CountDownLatch done;
+
+        Line(File file, String msg, CountDownLatch done) {
+            this.file = file;
+            this.msg = msg;
+            this.done = done;
+        }
+    }
+
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(SHARED::close));
+    }
+
+
+    /**
+     * Creates a sink with its own writer thread.
+     * @param capacity Number of lines that can be queued before logging blocks.
+     */
+    public LogSink(int capacity) {
+        queue = new ArrayBlockingQueue<>(capacity);
+        writer = new Thread(this::drain, "log-sink");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+
+    /**
+     * @return The sink shared by the games and experiments in this JVM.
+     */
+    public static LogSink shared() {
+        return SHARED;
+    }
+
+
+    /**
+     * Queues a line to be appended to the file.
+     * @param file File the line is appended to; created if it does not exist.
+     * @param msg  The line, without the line break.
+     */
+    public void write(File file, String msg) {
+        lock.readLock().lock();
+        try {
+            if (!closed) {
+                put(new Line(file, msg, null));
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        appendNow(file, msg);
+    }
+
+
+    /**
+     * Waits until every line queued so far has been written and flushed to its file.
+     */
+    public void flush() {
+        CountDownLatch done = new CountDownLatch(1);
+        lock.readLock().lock();
+        try {
+            if (closed) return; //Closing wrote everything out
+            put(new Line(null, null, done));
+        } finally {
+            lock.readLock().unlock();
+        }
+        await(done);
+    }
+
+
+    /**
+     * Writes out every queued line, closes the files and stops the writer thread.
+     */
+    public synchronized void close() {
+        CountDownLatch done = new CountDownLatch(1);
+        lock.writeLock().lock();
+        try {
+            if (closed) return;
+            put(new Line(null, "", done));
+            closed = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        await(done);
+    }
+
+
+    /**
+     * Queues a line, waiting for room if the queue is full; an interrupt does not drop the line.
+     */
+    private void put(Line line) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(line);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+
+    /**
+     * Appends a line to its file on the caller's thread, for lines logged after the sink was closed.
+     */
+    private synchronized void appendNow(File file, String msg) {
+        try (Writer out = new FileWriter(file, true)) {
+            out.write(msg);
+            out.write('\n');
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+
+    private static void await(CountDownLatch done) {
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * The writer thread; takes lines off the queue in batches until it is closed.
+     */
+    private void drain() {
+        List<Line> batch = new ArrayList<>(CAPACITY);
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                continue; //Only close stops the writer
+            }
+            queue.drainTo(batch);
+            for (Line line : batch) {
+                if (line.done != null) {
+                    flushFiles();
+                    if (line.msg != null) { //Stop
+                        closeFiles();
+                        line.done.countDown();
+                        return;
+                    }
+                    line.done.countDown();
+                } else {
+                    append(line);
+                }
+            }
+            batch.clear();
+            if (queue.isEmpty()) flushFiles();
+        }
+    }
+
+
+    private void append(Line line) {
+        try {
+            Writer out = files.get(line.file);
+            if (out == null) {
+                out = new BufferedWriter(new FileWriter(line.file, true));
+                files.put(line.file, out);
+            }
+            out.write(line.msg);
+            out.write('\n');
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+
+    private void flushFiles() {
+        for (Writer out : files.values()) {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+
+    private void closeFiles() {
+        for (Writer out : files.values()) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        files.clear();
+    }
+}
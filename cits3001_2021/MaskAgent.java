@@ -0,0 +1,78 @@
+package cits3001_2021;
+
+/**
+ * An optional variant of the Agent interface where teams and votes are bitmasks rather than arrays:
+ * bit i is set iff player i is in the team, or voted for the mission. See Bits for helper functions.
+ * Game calls these methods instead of the array ones for any agent that implements this interface,
+ * so no arrays are copied or scanned for it in the mission loop.
+ * The array methods are implemented from the bitmask ones, so the agent still works anywhere an Agent does.
+ * **/
+public interface MaskAgent extends Agent {
+
+  /**
+   * This method is called when the agent is required to lead (propose) a mission
+   *
+   * @param teamSize      the number of agents to go on the mission
+   * @param failsRequired the number of agent fails required for the mission to fail
+   * @return the proposed mission as a bitmask of player indexes.
+   **/
+  public int proposeMissionMask(int teamSize, int failsRequired);
+
+  /**
+   * This method is called when an agent is required to vote on whether a mission should proceed
+   *
+   * @param team   the bitmask of agents who will be going on the mission.
+   * @param leader the index of the agent who proposed the mission.
+   * @return true is this agent votes that the mission should go ahead, false otherwise.
+   **/
+  public boolean voteMask(int team, int leader);
+
+  /**
+   * The method is called on an agent to inform them of the outcome of a vote,
+   * and which agent voted for or against the mission.
+   *
+   * @param team   the bitmask of agents on the mission team
+   * @param leader the agent index of the leader, who proposed the mission
+   * @param votes  the bitmask of agents who voted for the mission to go ahead.
+   **/
+  public default void voteOutcomeMask(int team, int leader, int votes){}
+
+  /**
+   * This method is called on an agent who has a choice to betray (fail) the mission
+   *
+   * @param team   the bitmask of agents on the mission team
+   * @param leader the agent who proposed the mission
+   * @return true is the agent choses to betray (fail) the mission
+   **/
+  public boolean betrayMask(int team, int leader);
+
+  /**
+   * Informs all agents of the outcome of the mission, including the number of agents who failed the mission.
+   *
+   * @param team           the bitmask of agents on the mission team
+   * @param leader         the agent who proposed the mission
+   * @param numFails       the number of agent's who failed the mission
+   * @param missionSuccess true if and only if the mission succeeded.
+   **/
+  public default void missionOutcomeMask(int team, int leader, int numFails, boolean missionSuccess){}
+
+  public default int[] proposeMission(int teamsize, int failsRequired){
+    return Bits.toArray(proposeMissionMask(teamsize, failsRequired));
+  }
+
+  public default boolean vote(int[] mission, int leader){
+    return voteMask(Bits.mask(mission), leader);
+  }
+
+  public default void voteOutcome(int[] mission, int leader, boolean[] votes){
+    voteOutcomeMask(Bits.mask(mission), leader, Bits.mask(votes));
+  }
+
+  public default boolean betray(int[] mission, int leader){
+    return betrayMask(Bits.mask(mission), leader);
+  }
+
+  public default void missionOutcome(int[] mission, int leader, int numFails, boolean missionSuccess){
+    missionOutcomeMask(Bits.mask(mission), leader, numFails, missionSuccess);
+  }
+}
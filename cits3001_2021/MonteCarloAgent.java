@@ -0,0 +1,472 @@
+package cits3001_2021;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An agent that looks ahead instead of following fixed thresholds. Every decision (proposing a team, voting and
+ * betraying) is made with a flat information set Monte Carlo tree search: each iteration guesses who the spies are,
+ * plays one of the possible actions and then plays the rest of the game out with a simple policy for every player,
+ * and the action that is tried the most under UCB1 is played.
+ *
+ * As a resistance member the spies are drawn from a SpySetPosterior, so likely sets of spies are played out more
+ * often; as a spy the spies are known. The rollouts step a copy of the agent's GameState rather than a Game, so a
+ * rollout is a few hundred nanoseconds.
+ *
+ * Each decision is split between a fixed number of workers, each with its own random stream and statistics that are
+ * added together at the end, and the workers are shared out between the threads. The search stops when the time
+ * budget of the decision or the iteration limit is reached. With only an iteration limit the agent plays the same way
+ * from the same seed whatever the number of threads; with a time budget it depends on how fast the machine is.
+ */
+public class MonteCarloAgent implements MaskAgent {
+
+    private static final int PROPOSE = 0, VOTE = 1, BETRAY = 2; //Kinds of decision searched
+    private static final double BETRAY_CHANCE = 0.9; //How often a spy on a team is expected to fail it
+    private static final double EXPLORATION = 0.7; //UCB1 exploration constant
+    private static final int WORKERS = 8; //Searches of each decision, and so the most threads it can use
+    private static final int CHUNK = 16; //Iterations a worker plays between checks of the deadline
+
+    private static final AtomicInteger agentCount = new AtomicInteger();
+
+    private final String name;
+    private long budgetNanos = 1_000_000; //Time allowed for each decision, 0 for no limit
+    private int iterations = 0; //Rollouts allowed for each decision, 0 for no limit
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private SplittableRandom random = new SplittableRandom();
+
+    //What the agent knows about the game so far
+    private int numPlayers;
+    private int id;
+    private int spies; //Bitmask of the spies if the agent is one, otherwise 0
+    private GameState state; //Round, score and leader; the spies if the agent is one
+    private SpySetPosterior posterior;
+    private final int[] actions = new int[252]; //Actions of the current decision; at most C(10, 5) teams
+    private int[] suspectedSpies = new int[0];
+
+
+    /**
+     * Creates the name of the agent.
+     */
+    public MonteCarloAgent(String name) {
+        this.name = name;
+    }
+
+
+    /**
+     * Returns an instance of this agent for testing.
+     * The program should allocate the agent's name,
+     * and can use a counter to ensure no two agents have the same name.
+     *
+     * @return an instance of the agent.
+     **/
+    public static Agent init() {
+        int count = agentCount.getAndIncrement();
+        return switch (count) {
+            case 0 -> new MonteCarloAgent("MonteCarlo-1st");
+            case 1 -> new MonteCarloAgent("MonteCarlo-2nd");
+            case 2 -> new MonteCarloAgent("MonteCarlo-3rd");
+            default -> new MonteCarloAgent("MonteCarlo-" + (count + 1) + "th");
+        };
+    }
+
+
+    /**
+     * Gets the name of the agent
+     *
+     * @return the agent's name.
+     **/
+    public String getName() {
+        return name;
+    }
+
+
+    /**
+     * Sets how long each decision may search for; the search stops at whichever limit is reached first.
+     * @param nanos      Time budget of a decision in nanoseconds, or 0 for no time limit.
+     * @param iterations Maximum number of rollouts of a decision, or 0 for no limit.
+     */
+    public void setBudget(long nanos, int iterations) {
+        if (nanos <= 0 && iterations <= 0) throw new IllegalArgumentException("The search needs a limit");
+        this.budgetNanos = Math.max(nanos, 0);
+        this.iterations = Math.max(iterations, 0);
+    }
+
+
+    /**
+     * Sets how many threads search each decision; every core by default, and at most 8. The choice of each decision
+     * does not depend on it when there is only an iteration limit.
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(threads, 1);
+    }
+
+
+    /**
+     * Initialises a new game.
+     * The agent should drop their current gameState and reinitialise all their game variables.
+     * @param numPlayers  the number of players in the game.
+     * @param playerIndex the players index in the game.
+     * @param spies       the index of all the spies in the game, if this agent is a spy (i.e. playerIndex is an
+     *                    element of spies)
+     **/
+    public void newGame(int numPlayers, int playerIndex, int[] spies) {
+        this.numPlayers = numPlayers;
+        id = playerIndex;
+        this.spies = Bits.mask(spies);
+        if (state == null) state = new GameState(numPlayers, this.spies);
+        else state.reset(numPlayers, this.spies);
+
+        if (this.spies == 0) {
+            if (posterior == null) posterior = new SpySetPosterior(numPlayers, GameState.spyNum(numPlayers), id);
+            else posterior.reset(numPlayers, GameState.spyNum(numPlayers), id);
+        }
+    }
+
+
+    /**
+     * Initialises a new game, using the game's random stream for the rollouts.
+     * @param random the random stream split from the game's seed for this agent.
+     **/
+    public void newGame(int numPlayers, int playerIndex, int[] spies, SplittableRandom random) {
+        this.random = random;
+        newGame(numPlayers, playerIndex, spies);
+    }
+
+
+    /**
+     * Searches every team of the right size; as resistance, only the teams the agent is on.
+     * @param teamSize      the number of agents to go on the mission
+     * @param failsRequired the number of agent fails required for the mission to fail
+     * @return the proposed mission as a bitmask of player indexes.
+     **/
+    public int proposeMissionMask(int teamSize, int failsRequired) {
+        int count = 0;
+        for (int team = (1 << teamSize) - 1; team < 1 << numPlayers; team = nextTeam(team)) {
+            if (spies != 0 || Bits.contains(team, id)) actions[count++] = team;
+        }
+        return search(PROPOSE, count, 0);
+    }
+
+
+    /**
+     * Searches voting for and against the mission.
+     * @param team   the bitmask of agents who will be going on the mission.
+     * @param leader the index of the agent who proposed the mission.
+     * @return true is this agent votes that the mission should go ahead, false otherwise.
+     **/
+    public boolean voteMask(int team, int leader) {
+        actions[0] = 1;
+        actions[1] = 0;
+        return search(VOTE, 2, team) == 1;
+    }
+
+
+    /**
+     * Steps the agent's state past the vote, which passes the lead on and may end the round.
+     * @param team   the bitmask of agents on the mission team
+     * @param leader the agent index of the leader, who proposed the mission
+     * @param votes  the bitmask of agents who voted for the mission to go ahead.
+     **/
+    public void voteOutcomeMask(int team, int leader, int votes) {
+        state.vote(votes);
+    }
+
+
+    /**
+     * Searches failing the mission and letting it succeed.
+     * @param team   the bitmask of agents on the mission team
+     * @param leader the agent who proposed the mission
+     * @return true is the agent choses to betray (fail) the mission
+     **/
+    public boolean betrayMask(int team, int leader) {
+        actions[0] = 1;
+        actions[1] = 0;
+        return search(BETRAY, 2, team) == 1;
+    }
+
+
+    /**
+     * Ends the round in the agent's state, and updates the posterior over the spies if the agent is resistance.
+     * @param team           the bitmask of agents on the mission team
+     * @param leader         the agent who proposed the mission
+     * @param numFails       the number of agent's who failed the mission
+     * @param missionSuccess true if and only if the mission succeeded.
+     **/
+    public void missionOutcomeMask(int team, int leader, int numFails, boolean missionSuccess) {
+        state.mission(numFails);
+        if (spies == 0) posterior.missionOutcome(team, numFails, BETRAY_CHANCE);
+    }
+
+
+    /**
+     * Informs all agents of the game state at the end of the round; the agent's state has already ended the round.
+     * @param roundsComplete the number of rounds played so far
+     * @param roundsLost     the number of rounds lost so far
+     **/
+    public void roundOutcome(int roundsComplete, int roundsLost) {}
+
+
+    /**
+     * Informs all agents of the outcome of the game, including the identity of the spies.
+     * @param roundsLost the number of rounds the Resistance lost
+     * @param spies      an array with the indexes of all the spies in the game.
+     **/
+    public void gameOutcome(int roundsLost, int[] spies) {}
+
+
+    /**
+     * Gets the players most likely to be spies; the actual spies if the agent is one.
+     * @return An array of spy id's.
+     */
+    public int[] getSuspectedSpies() {
+        int numSpies = GameState.spyNum(numPlayers);
+        if (suspectedSpies.length != numSpies) suspectedSpies = new int[numSpies];
+        if (spies != 0) {
+            Bits.toArray(spies, suspectedSpies);
+            return suspectedSpies;
+        }
+
+        int chosen = 0;
+        for (int k = 0; k < numSpies; k++) {
+            int best = -1;
+            for (int player = 0; player < numPlayers; player++) {
+                if (player == id || Bits.contains(chosen, player)) continue;
+                if (best < 0 || posterior.getMarginal(player) > posterior.getMarginal(best)) best = player;
+            }
+            suspectedSpies[k] = best;
+            chosen |= 1 << best;
+        }
+        return suspectedSpies;
+    }
+
+
+    //---------------------------------------------------------------------------
+    // Search
+    //---------------------------------------------------------------------------
+
+    /**
+     * Gosper's hack: the next larger integer with the same number of bits set.
+     */
+    private static int nextTeam(int team) {
+        int lowest = team & -team;
+        int ripple = team + lowest;
+        return (((ripple ^ team) >>> 2) / lowest) | ripple;
+    }
+
+
+    /**
+     * Searches a decision with every worker and picks the action that was visited the most. The workers and their
+     * random streams are the same whatever the number of threads, which only changes how they are scheduled.
+     * @param kind  PROPOSE, VOTE or BETRAY.
+     * @param count Number of actions, stored at the start of actions.
+     * @param team  The team voted on or betrayed, unused when proposing.
+     * @return The chosen action.
+     */
+    private int search(int kind, int count, int team) {
+        if (count == 1) return actions[0];
+        long deadline = budgetNanos == 0 ? Long.MAX_VALUE : System.nanoTime() + budgetNanos;
+        Search[] searches = new Search[WORKERS];
+        for (int w = 0; w < WORKERS; w++) {
+            int share = iterations == 0 ? Integer.MAX_VALUE : iterations / WORKERS + (w < iterations % WORKERS ? 1 : 0);
+            searches[w] = new Search(kind, count, team, share, w * count / WORKERS, random.split());
+        }
+        int shards = Math.min(threads, WORKERS);
+        if (shards == 1) new Shard(searches, 0, WORKERS, deadline).compute();
+        else {
+            Shard[] tasks = new Shard[shards];
+            for (int t = 0; t < shards; t++) {
+                tasks[t] = new Shard(searches, t * WORKERS / shards, (t + 1) * WORKERS / shards, deadline);
+            }
+            ForkJoinTask.invokeAll(tasks);
+        }
+
+        int best = 0;
+        long bestVisits = -1;
+        for (int a = 0; a < count; a++) {
+            long visits = 0;
+            for (Search s : searches) visits += s.visits[a];
+            if (visits > bestVisits) {
+                best = a;
+                bestVisits = visits;
+            }
+        }
+        return actions[best];
+    }
+
+
+    /**
+     * The workers searched by one thread, a chunk of each in turn so they all get a part of the time budget.
+     */
+    private static final class Shard extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Search[] searches;
+        private final int from, to;
+        private final long deadline;
+
+        Shard(Search[] searches, int from, int to, long deadline) {
+            this.searches = searches;
+            this.from = from;
+            this.to = to;
+            this.deadline = deadline;
+        }
+
+        @Override
+        protected void compute() {
+            boolean searching = true;
+            while (searching && System.nanoTime() <= deadline) {
+                searching = false;
+                for (int w = from; w < to; w++) searching |= searches[w].search(CHUNK);
+            }
+        }
+    }
+
+
+    /**
+     * The search of one worker: UCB1 over the actions at the root, with a rollout of the rest of the game for every
+     * iteration.
+     */
+    private final class Search {
+        private final int kind, count, team, limit, offset;
+        private final SplittableRandom random;
+        private final int[] visits;
+        private final double[] rewards;
+        private final Rollout rollout = new Rollout();
+        private int played;
+
+        /**
+         * @param offset The first action tried, so the workers start by trying different actions.
+         */
+        Search(int kind, int count, int team, int limit, int offset, SplittableRandom random) {
+            this.kind = kind;
+            this.count = count;
+            this.team = team;
+            this.limit = limit;
+            this.offset = offset;
+            this.random = random;
+            visits = new int[count];
+            rewards = new double[count];
+        }
+
+        /**
+         * Plays up to the given number of iterations.
+         * @return True iff the worker has iterations left.
+         */
+        boolean search(int iterations) {
+            for (int end = played + Math.min(iterations, limit - played); played < end; played++) {
+                int a = select(played);
+                rollout.start(spies != 0 ? spies : posterior.sample(random));
+                play(a);
+                boolean resistanceWon = rollout.playOut(random);
+                visits[a]++;
+                if (resistanceWon == (spies == 0)) rewards[a]++;
+            }
+            return played < limit;
+        }
+
+        /**
+         * Picks the next action to try: every action once, then the highest upper confidence bound.
+         */
+        private int select(int played) {
+            if (played < count) return (played + offset) % count;
+            double log = Math.log(played);
+            int best = 0;
+            double bestBound = -1;
+            for (int a = 0; a < count; a++) {
+                double bound = rewards[a] / visits[a] + EXPLORATION * Math.sqrt(log / visits[a]);
+                if (bound > bestBound) {
+                    best = a;
+                    bestBound = bound;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Plays the agent's action in the rollout, and the rest of the mission it is part of.
+         */
+        private void play(int a) {
+            int action = actions[a];
+            switch (kind) {
+                case PROPOSE -> rollout.vote(action, rollout.votes(action, random), random);
+                case VOTE -> {
+                    int votes = rollout.votes(team, random) & ~(1 << id) | action << id;
+                    rollout.vote(team, votes, random);
+                }
+                default -> rollout.state.mission(rollout.fails(team & ~(1 << id), random) + action);
+            }
+        }
+    }
+
+
+    /**
+     * A rollout from what the agent knows and a guess of the spies, on a copy of its GameState. Every player follows
+     * the same simple policy: leaders take themselves and random players, spies approve teams with a spy on them and
+     * usually fail them, and the resistance approve teams they are on, the fifth proposal of a round, and half of the
+     * others.
+     */
+    private final class Rollout {
+        private final GameState state = new GameState(numPlayers, 0);
+
+        /**
+         * Starts from the agent's current game with the given spies.
+         */
+        void start(int spyMask) {
+            state.copyFrom(MonteCarloAgent.this.state);
+            state.setSpies(spyMask);
+        }
+
+        /**
+         * @return The leader and random other players.
+         */
+        int team(SplittableRandom random) {
+            return TeamSampler.fill(1 << state.getLeader(), numPlayers, state.teamSize(), random);
+        }
+
+        /**
+         * @return The players voting for the team, as a bitmask.
+         */
+        int votes(int team, SplittableRandom random) {
+            int spyMask = state.getSpies();
+            boolean lastChance = state.getRejects() == GameState.MISSIONS_PER_ROUND - 1;
+            int votes = 0;
+            for (int player = 0; player < numPlayers; player++) {
+                boolean approve = Bits.contains(spyMask, player) ? (team & spyMask) != 0
+                        : lastChance || Bits.contains(team, player) || random.nextBoolean();
+                if (approve) votes |= 1 << player;
+            }
+            return votes;
+        }
+
+        /**
+         * @return The number of spies of the given players that fail the mission.
+         */
+        int fails(int players, SplittableRandom random) {
+            int fails = 0;
+            for (int onTeam = players & state.getSpies(); onTeam != 0; onTeam &= onTeam - 1) {
+                if (random.nextDouble() < BETRAY_CHANCE) fails++;
+            }
+            return fails;
+        }
+
+        /**
+         * Counts the votes on a team, and plays the mission if it was approved.
+         */
+        void vote(int team, int votes, SplittableRandom random) {
+            if (state.vote(votes)) state.mission(fails(team, random));
+        }
+
+        /**
+         * Plays the game out with every player's policy.
+         * @return True iff the resistance won.
+         */
+        boolean playOut(SplittableRandom random) {
+            while (!state.isDecided()) {
+                int team = team(random);
+                vote(team, votes(team, random), random);
+            }
+            return state.resistanceWon();
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package cits3001_2021;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Holds a batch of games as PackedGames in three long arrays, the state, the history and the random stream of each
+ * game, so a game in flight costs 24 bytes and a million of them fit in 24 MB of heap. Every seat of every game is
+ * played by the same Policy, which reads the packed state and draws from the game's stream through the batch; there
+ * are no Agent objects, no copies of the game for each player and no arrays to scan.
+ *
+ * Game g is started from Tournament.gameSeed(seed, g), which chooses its spies uniformly and seeds its random stream,
+ * so a batch replays the same way from the same seed however it is stepped. The stream of each game is a SplitMix64
+ * state kept in one long, the same generator SplittableRandom uses.
+ */
+public class PackedBatch {
+
+    /**
+     * How every player of a packed game plays. Teams, votes and betrayals are bitmasks, see Bits. A policy should
+     * draw any random numbers from the game's stream, with nextInt and nextLong, so the batch stays reproducible.
+     */
+    public interface Policy {
+
+        /**
+         * @return The team the leader proposes, with the team size of the current round.
+         */
+        int propose(PackedBatch batch, int game);
+
+        /**
+         * @return The players that vote for the proposed team.
+         */
+        int vote(PackedBatch batch, int game);
+
+        /**
+         * @return The players that betray the mission; only the spies on the team are counted.
+         */
+        int betray(PackedBatch batch, int game);
+    }
+
+
+    /**
+     * Plays every seat as RandomAgent does: a team drawn uniformly at random, and each vote and each betrayal a coin
+     * flip.
+     */
+    public static final Policy RANDOM = new Policy() {
+        @Override
+        public int propose(PackedBatch batch, int game) {
+            long state = batch.getState(game);
+            int pool = Bits.all(PackedGame.numPlayers(state));
+            int team = 0;
+            for (int left = Integer.bitCount(pool), i = 0; i < PackedGame.teamSize(state); i++, left--) {
+                int member = 1 << TeamSampler.select(pool, batch.nextInt(game, left));
+                team |= member;
+                pool &= ~member;
+            }
+            return team;
+        }
+
+        @Override
+        public int vote(PackedBatch batch, int game) {
+            return (int) batch.nextLong(game); //One fair bit per player
+        }
+
+        @Override
+        public int betray(PackedBatch batch, int game) {
+            return (int) batch.nextLong(game);
+        }
+    };
+
+
+    private static final int SHARD = 4096; //Games stepped together by one thread
+
+    private final long[] states;
+    private final long[] histories;
+    private final long[] randoms;
+
+
+    /**
+     * Creates a batch with room for the given number of games, all over until the batch is started.
+     */
+    public PackedBatch(int size) {
+        states = new long[size];
+        histories = new long[size];
+        randoms = new long[size];
+        Arrays.fill(states, PackedGame.EMPTY);
+    }
+
+
+    /**
+     * Starts a new game in every slot of the batch, with the spies chosen uniformly at random.
+     * @param numPlayers The number of players in every game.
+     * @param seed       Seed of the batch; game g is played from Tournament.gameSeed(seed, g).
+     */
+    public void start(int numPlayers, long seed) {
+        int all = Bits.all(numPlayers);
+        int numSpies = GameState.spyNum(numPlayers);
+        for (int g = 0; g < states.length; g++) {
+            SplittableRandom random = new SplittableRandom(Tournament.gameSeed(seed, g));
+            states[g] = PackedGame.start(numPlayers, SpyAllocation.sample(all, numSpies, random));
+            histories[g] = 0;
+            randoms[g] = random.nextLong();
+        }
+    }
+
+
+    /**
+     * Plays one phase of every game that is not over yet.
+     * @param policy How every player plays.
+     * @return The number of games that are still not over.
+     */
+    public int step(Policy policy) {
+        int live = 0;
+        for (int g = 0; g < states.length; g++) {
+            if (step(policy, g)) live++;
+        }
+        return live;
+    }
+
+
+    /**
+     * Plays every game of the batch to the end, on every core. The games are independent, so the outcome is the same
+     * as stepping them one phase at a time.
+     * @param policy How every player plays.
+     */
+    public void play(Policy policy) {
+        IntStream.range(0, (states.length + SHARD - 1) / SHARD).parallel().forEach(shard -> {
+            int to = Math.min(states.length, (shard + 1) * SHARD);
+            for (int g = shard * SHARD; g < to; g++) {
+                while (step(policy, g));
+            }
+        });
+    }
+
+
+    /**
+     * Plays the current phase of one game.
+     * @return True if the game is not over yet.
+     */
+    private boolean step(Policy policy, int game) {
+        long state = states[game];
+        switch (PackedGame.phase(state)) {
+            case PackedGame.PROPOSE -> state = PackedGame.propose(state, policy.propose(this, game));
+            case PackedGame.VOTE -> state = PackedGame.vote(state, policy.vote(this, game));
+            case PackedGame.EXECUTE -> {
+                int team = PackedGame.team(state);
+                histories[game] = PackedGame.recordTeam(histories[game], PackedGame.round(state), team);
+                int fails = Integer.bitCount(policy.betray(this, game) & team & PackedGame.spies(state));
+                state = PackedGame.mission(state, fails);
+            }
+            default -> {
+                return false;
+            }
+        }
+        states[game] = state;
+        return !PackedGame.isOver(state);
+    }
+
+
+    public int size() {
+        return states.length;
+    }
+
+
+    /**
+     * @return The packed state of a game, see PackedGame.
+     */
+    public long getState(int game) {
+        return states[game];
+    }
+
+
+    /**
+     * @return The teams sent on each mission of a game, see PackedGame.missionTeam.
+     */
+    public long getHistory(int game) {
+        return histories[game];
+    }
+
+
+    /**
+     * Draws the next 64 random bits of a game's stream.
+     */
+    public long nextLong(int game) {
+        return next(randoms, game);
+    }
+
+
+    /**
+     * Draws a number from 0 (inclusive) to bound (exclusive) from a game's stream, by multiplying the top 32 bits
+     * rather than rejecting; the bias is below one in 2^28 for the bounds of a game.
+     */
+    public int nextInt(int game, int bound) {
+        return nextInt(next(randoms, game), bound);
+    }
+
+
+    /**
+     * Steps the SplitMix64 stream kept in randoms[i].
+     * @return The next 64 random bits of the stream.
+     */
+    static long next(long[] randoms, int i) {
+        long z = randoms[i] += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+
+    /**
+     * @return A number from 0 (inclusive) to bound (exclusive) from 64 random bits, see nextInt.
+     */
+    static int nextInt(long bits, int bound) {
+        return (int) (((bits >>> 32) * bound) >>> 32);
+    }
+
+
+    /**
+     * @return wins[w] is the number of games the resistance won w rounds in, for w from 0 to 5.
+     */
+    public int[] countWins() {
+        int[] wins = new int[6];
+        for (long state : states) wins[PackedGame.wins(state)]++;
+        return wins;
+    }
+
+
+    /**
+     * Plays a million games of random players and reports how long they took and how often the resistance won.
+     * Arguments: seed, number of players and number of games.
+     */
+    public static void main(String[] args) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : new SplittableRandom().nextLong();
+        int numPlayers = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int games = args.length > 2 ? Integer.parseInt(args[2]) : 1_000_000;
+
+        PackedBatch batch = new PackedBatch(games);
+        long start = System.nanoTime();
+        batch.start(numPlayers, seed);
+        batch.play(RANDOM);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Proportion resistance = new Proportion();
+        for (int g = 0; g < games; g++) resistance.add(PackedGame.resistanceWon(batch.getState(g)));
+        System.out.printf("Seed %d, %d games of %d random players in %.2fs (%.0f games/s)%n", seed, games, numPlayers,
+                seconds, games / seconds);
+        System.out.println("Rounds won by the resistance: " + Arrays.toString(batch.countWins()));
+        System.out.println("Resistance wins: " + resistance);
+    }
+}
@@ -0,0 +1,242 @@
+package cits3001_2021;
+
+/**
+ * A whole game of The Resistance packed into two longs, for holding millions of games in flight at once (see
+ * PackedBatch). The state long holds everything the rules need: the number of players, the spies, the phase, the round,
+ * the rounds won, the missions rejected in the round, the leader, the team proposed and the fails played on each round's
+ * mission. The history long holds the team sent on each round's mission, 0 if the round was lost to rejections. The
+ * other rounds lost are the rounds played less the rounds won.
+ *
+ * The functions are pure: each takes a state and returns the next one, so a game costs 16 bytes and no objects. The
+ * rules are those of GameState. Every round is played, as in Game, and the spies are always known.
+ *
+ * <pre>
+ * state bits  0-9   spies           history bits 10r to 10r+9   team of round r
+ *            10-19  team proposed
+ *            20-23  leader
+ *            24-26  rejects
+ *            27-29  round
+ *            30-32  wins
+ *            33-35  players - 5
+ *            36-37  phase
+ *            38-52  fails of each round, 3 bits per round
+ * </pre>
+ */
+public final class PackedGame {
+
+    private PackedGame() {}
+
+    /** Phase of a game waiting for the leader to propose a team. */
+    public static final int PROPOSE = 0;
+    /** Phase of a game waiting for the votes on the proposed team. */
+    public static final int VOTE = 1;
+    /** Phase of a game waiting for the spies on the approved team to betray or not. */
+    public static final int EXECUTE = 2;
+    /** Phase of a game after the fifth round. */
+    public static final int GAME_OVER = 3;
+
+    private static final int SPIES = 0;
+    private static final int TEAM = 10;
+    private static final int LEADER = 20;
+    private static final int REJECTS = 24;
+    private static final int ROUND = 27;
+    private static final int WINS = 30;
+    private static final int PLAYERS = 33;
+    private static final int PHASE = 36;
+    private static final int FAILS = 38;
+
+    private static final int PLAYER_BITS = 0x3FF;
+
+    /** A state that is already over, for a slot that holds no game. */
+    public static final long EMPTY = (long) GAME_OVER << PHASE;
+
+
+    /**
+     * @param numPlayers The number of players in the game.
+     * @param spies      The spies as a bitmask.
+     * @return The state at the start of a game, with the first player leading.
+     */
+    public static long start(int numPlayers, int spies) {
+        if (numPlayers < 5) throw new RuntimeException("Too few players");
+        if (numPlayers > 10) throw new RuntimeException("Too many players");
+        return (long) spies << SPIES | (long) (numPlayers - 5) << PLAYERS | (long) PROPOSE << PHASE;
+    }
+
+
+    /**
+     * Proposes the leader's team.
+     * @param team The team as a bitmask; it must have the round's team size.
+     * @return The state waiting for the votes.
+     */
+    public static long propose(long state, int team) {
+        if (Integer.bitCount(team) != teamSize(state) || team >>> numPlayers(state) != 0) {
+            throw new IllegalArgumentException("Not a team of " + teamSize(state) + ": " + Integer.toBinaryString(team));
+        }
+        return with(with(state, TEAM, PLAYER_BITS, team), PHASE, 3, VOTE);
+    }
+
+
+    /**
+     * Counts the votes on the proposed team and passes the lead on, as GameState.vote does.
+     * @param votes The players that voted for the team, as a bitmask.
+     * @return The state waiting for the mission if the team was approved, otherwise for the next proposal.
+     */
+    public static long vote(long state, int votes) {
+        int numPlayers = numPlayers(state);
+        int leader = leader(state) + 1;
+        state = with(state, LEADER, 0xF, leader == numPlayers ? 0 : leader);
+        if (2 * Integer.bitCount(votes & Bits.all(numPlayers)) > numPlayers) return with(state, PHASE, 3, EXECUTE);
+        int rejects = rejects(state) + 1;
+        if (rejects == GameState.MISSIONS_PER_ROUND) return endRound(state, false);
+        return with(with(state, REJECTS, 7, rejects), PHASE, 3, PROPOSE);
+    }
+
+
+    /**
+     * Plays the approved mission, ending the round.
+     * @param fails The number of fails played on the mission.
+     * @return The state at the start of the next round, or at the end of the game.
+     */
+    public static long mission(long state, int fails) {
+        boolean success = fails < failsRequired(state);
+        return endRound(with(state, FAILS + 3 * round(state), 7, fails), success);
+    }
+
+
+    private static long endRound(long state, boolean success) {
+        int round = round(state) + 1;
+        if (success) state = with(state, WINS, 7, wins(state) + 1);
+        state = with(with(state, ROUND, 7, round), REJECTS, 7, 0);
+        return with(state, PHASE, 3, round == 5 ? GAME_OVER : PROPOSE);
+    }
+
+
+    private static long with(long state, int shift, long mask, long value) {
+        return state & ~(mask << shift) | value << shift;
+    }
+
+
+    private static int get(long state, int shift, int mask) {
+        return (int) (state >>> shift) & mask;
+    }
+
+
+    /**
+     * Records the team sent on the mission of a round.
+     * @return The history with the team recorded.
+     */
+    public static long recordTeam(long history, int round, int team) {
+        return with(history, 10 * round, PLAYER_BITS, team);
+    }
+
+
+    /**
+     * @return The team sent on the mission of a round, or 0 if it has not been played or was lost to rejections.
+     */
+    public static int missionTeam(long history, int round) {
+        return get(history, 10 * round, PLAYER_BITS);
+    }
+
+
+    public static int numPlayers(long state) {
+        return get(state, PLAYERS, 7) + 5;
+    }
+
+
+    /**
+     * @return The spies as a bitmask.
+     */
+    public static int spies(long state) {
+        return get(state, SPIES, PLAYER_BITS);
+    }
+
+
+    /**
+     * @return PROPOSE, VOTE, EXECUTE or GAME_OVER.
+     */
+    public static int phase(long state) {
+        return get(state, PHASE, 3);
+    }
+
+
+    /**
+     * @return The team proposed for the current mission, as a bitmask; only meaningful in VOTE and EXECUTE.
+     */
+    public static int team(long state) {
+        return get(state, TEAM, PLAYER_BITS);
+    }
+
+
+    public static int leader(long state) {
+        return get(state, LEADER, 0xF);
+    }
+
+
+    /**
+     * @return The number of missions rejected so far in the current round.
+     */
+    public static int rejects(long state) {
+        return get(state, REJECTS, 7);
+    }
+
+
+    /**
+     * @return The number of rounds complete, which is also the index of the current round.
+     */
+    public static int round(long state) {
+        return get(state, ROUND, 7);
+    }
+
+
+    /**
+     * @return The number of rounds the resistance won.
+     */
+    public static int wins(long state) {
+        return get(state, WINS, 7);
+    }
+
+
+    /**
+     * @return The number of rounds the resistance lost.
+     */
+    public static int losses(long state) {
+        return round(state) - wins(state);
+    }
+
+
+    /**
+     * @return The number of fails played on the mission of a round, 0 if it was not played.
+     */
+    public static int fails(long state, int round) {
+        return get(state, FAILS + 3 * round, 7);
+    }
+
+
+    /**
+     * @return The team size of the current round.
+     */
+    public static int teamSize(long state) {
+        return GameState.missionSize(numPlayers(state), round(state));
+    }
+
+
+    /**
+     * @return The fails needed to fail the mission of the current round.
+     */
+    public static int failsRequired(long state) {
+        return GameState.failsRequired(numPlayers(state), round(state));
+    }
+
+
+    public static boolean isOver(long state) {
+        return phase(state) == GAME_OVER;
+    }
+
+
+    /**
+     * @return True iff the resistance has won 3 rounds.
+     */
+    public static boolean resistanceWon(long state) {
+        return wins(state) > 2;
+    }
+}
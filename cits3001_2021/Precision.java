@@ -0,0 +1,56 @@
+package cits3001_2021;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * How the Bayesian agents round their suspicion values after every update. The agents were written to round every
+ * posterior to 3 decimal places with BigDecimal, which allocates and rescales a BigDecimal for every player on every
+ * mission.
+ *
+ * EXACT is that original rounding. FIXED gives the same doubles, bit for bit, using only double arithmetic, and is what
+ * the agents use by default. NONE skips the rounding altogether, so the suspicion values keep full double precision;
+ * round them when reporting them if needed. The agents can play differently with NONE, since values that were equal
+ * after rounding may no longer be.
+ *
+ * PrecisionParity checks that EXACT and FIXED play identical games.
+ */
+public enum Precision {
+
+    EXACT {
+        public double round(double number) {
+            return new BigDecimal(number).setScale(3, RoundingMode.HALF_EVEN).doubleValue();
+        }
+    },
+
+    FIXED {
+        public double round(double number) {
+            //number * 1000 is itself rounded, so its floor can be one away from the floor of the exact product; fma
+            //gives the sign of the exact difference without rounding in between
+            double thousandths = Math.floor(number * 1000);
+            if (Math.fma(number, 1000, -thousandths) < 0) thousandths -= 1;
+            else if (Math.fma(number, 1000, -(thousandths + 1)) >= 0) thousandths += 1;
+
+            //Round up past the midpoint, and to the even neighbour on it
+            double half = Math.fma(number, 1000, -(thousandths + 0.5));
+            if (half > 0 || (half == 0 && thousandths % 2 != 0)) thousandths += 1;
+
+            //Adding 0.0 turns -0.0 into 0.0, as BigDecimal has no negative zero
+            return thousandths / 1000 + 0.0;
+        }
+    },
+
+    NONE {
+        public double round(double number) {
+            return number;
+        }
+    };
+
+
+    /**
+     * Rounds a suspicion value.
+     * @param number Number to be rounded.
+     * @return The number rounded to 3 decimal places, half to even, except for NONE which returns it unchanged.
+     */
+    public abstract double round(double number);
+}
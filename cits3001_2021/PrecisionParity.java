@@ -0,0 +1,120 @@
+package cits3001_2021;
+
+import java.util.Arrays;
+import java.util.stream.LongStream;
+
+/**
+ * Checks that the Bayesian agents play exactly the same games whichever way they round their suspicion values, and
+ * times each way.
+ *
+ * Two checks are made, each from the same seeds for every precision:
+ *   1. A tournament of Baerule, BasicRebel and Agent_22511218 in 5 player games, comparing the spy identification
+ *      histograms of Baerule and BasicRebel. Agent_22511218 is seated so its own rounding shapes the games too.
+ *   2. Games of only Agent_22511218 for 5 to 10 players, played in lockstep, comparing the score and the suspected
+ *      spies of every agent after every game.
+ *
+ * Precision.FIXED must match Precision.EXACT in both. Precision.NONE is reported for comparison but may differ.
+ * Pass the number of games as the first argument (2 million by default) and a seed as the second.
+ */
+public class PrecisionParity {
+
+    private static final int SHARD = 1000;
+
+
+    /**
+     * Creates the tournament line-up with the given rounding.
+     */
+    private static Agent[] lineUp(Precision precision) {
+        Baerule baerule = (Baerule) Baerule.init();
+        baerule.setPrecision(precision);
+        Agent[] agents = {baerule, BasicRebel.init(), BasicRebel.init(), null, null};
+        for (int i = 3; i < agents.length; i++) {
+            Agent_22511218 agent = (Agent_22511218) Agent_22511218.init();
+            agent.setPrecision(precision);
+            agents[i] = agent;
+        }
+        return agents;
+    }
+
+
+    /**
+     * Runs the tournament check for one precision.
+     * @return The Baerule and BasicRebel histograms, one after the other.
+     */
+    private static int[] tournament(Precision precision, int games, long seed) {
+        long start = System.nanoTime();
+        Tournament.Result result = new Tournament().run(() -> lineUp(precision), games, seed);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        System.out.printf("%-6s %s %s in %d ms%n", precision, Arrays.toString(result.getBaerule()),
+                Arrays.toString(result.getBasicRebel()), millis);
+
+        int[] histograms = Arrays.copyOf(result.getBaerule(), 6);
+        System.arraycopy(result.getBasicRebel(), 0, histograms, 3, 3);
+        return histograms;
+    }
+
+
+    /**
+     * Plays the same games of Agent_22511218 with Precision.EXACT and another precision.
+     * @return The number of games where the score or any agent's suspected spies differed.
+     */
+    private static long lockstep(Precision precision, int numPlayers, int games, long seed) {
+        return LongStream.range(0, (games + SHARD - 1) / SHARD).parallel().map(shard -> {
+            Agent[] exact = new Agent[numPlayers];
+            Agent[] other = new Agent[numPlayers];
+            for (int i = 0; i < numPlayers; i++) {
+                Agent_22511218 a = (Agent_22511218) Agent_22511218.init();
+                a.setPrecision(Precision.EXACT);
+                exact[i] = a;
+                Agent_22511218 b = (Agent_22511218) Agent_22511218.init();
+                b.setPrecision(precision);
+                other[i] = b;
+            }
+            Game exactGame = new Game(numPlayers);
+            Game otherGame = new Game(numPlayers);
+
+            long differences = 0;
+            for (long g = shard * SHARD; g < Math.min(games, (shard + 1) * SHARD); g++) {
+                long gameSeed = Tournament.gameSeed(seed, g);
+                exactGame.play(exact, gameSeed);
+                otherGame.play(other, gameSeed);
+
+                boolean same = exactGame.getScore() == otherGame.getScore();
+                for (int i = 0; i < numPlayers && same; i++) {
+                    same = Arrays.equals(exact[i].getSuspectedSpies(), other[i].getSuspectedSpies());
+                }
+                if (!same) differences++;
+            }
+            return differences;
+        }).sum();
+    }
+
+
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 0;
+        boolean parity = true;
+
+        System.out.println("Tournament of " + games + " games, seed " + seed);
+        int[] exact = tournament(Precision.EXACT, games, seed);
+        for (Precision precision : new Precision[]{Precision.FIXED, Precision.NONE}) {
+            boolean same = Arrays.equals(exact, tournament(precision, games, seed));
+            System.out.println(precision + (same ? " matches EXACT" : " differs from EXACT"));
+            if (precision == Precision.FIXED) parity &= same;
+        }
+
+        System.out.println();
+        System.out.println("Agent_22511218 games in lockstep with EXACT, " + games / 6 + " per player count");
+        for (int numPlayers = 5; numPlayers <= 10; numPlayers++) {
+            for (Precision precision : new Precision[]{Precision.FIXED, Precision.NONE}) {
+                long differences = lockstep(precision, numPlayers, games / 6, seed);
+                System.out.printf("%2d players %-6s %d games differ%n", numPlayers, precision, differences);
+                if (precision == Precision.FIXED) parity &= differences == 0;
+            }
+        }
+
+        System.out.println();
+        System.out.println(parity ? "FIXED is identical to EXACT" : "FIXED DIFFERS FROM EXACT");
+        if (!parity) System.exit(1);
+    }
+}
@@ -0,0 +1,93 @@
+package cits3001_2021;
+
+/**
+ * How often something happened out of a number of trials, e.g. how often an agent won, with a Wilson score interval.
+ * Unlike the usual mean +- 1.96 standard errors, the Wilson interval stays inside [0, 1] and keeps its coverage for
+ * rates close to 0 or 1 and for few trials, which is where win and fail rates often are.
+ */
+public class Proportion {
+
+    private long successes;
+    private long trials;
+
+
+    /**
+     * Adds a trial.
+     * @param success True iff it happened.
+     */
+    public void add(boolean success) {
+        trials++;
+        if (success) successes++;
+    }
+
+
+    /**
+     * Adds the trials of another proportion into this one.
+     * @return This proportion.
+     */
+    public Proportion merge(Proportion other) {
+        successes += other.successes;
+        trials += other.trials;
+        return this;
+    }
+
+
+    public long getSuccesses() {
+        return successes;
+    }
+
+
+    public long getTrials() {
+        return trials;
+    }
+
+
+    /**
+     * @return The fraction of trials that succeeded, or 0 without any trials.
+     */
+    public double getRate() {
+        return trials == 0 ? 0 : (double) successes / trials;
+    }
+
+
+    /**
+     * @return The centre of the 95% Wilson interval, which is pulled slightly towards 1/2 from the rate.
+     */
+    private double centre() {
+        double z2 = RunningStats.Z95 * RunningStats.Z95;
+        return (successes + z2 / 2) / (trials + z2);
+    }
+
+
+    /**
+     * @return Half the width of the 95% Wilson interval; 1/2 without any trials.
+     */
+    public double getHalfWidth() {
+        if (trials == 0) return 0.5;
+        double z = RunningStats.Z95;
+        double p = getRate();
+        return z / (trials + z * z) * Math.sqrt(p * (1 - p) * trials + z * z / 4);
+    }
+
+
+    /**
+     * @return The lower end of the 95% Wilson interval.
+     */
+    public double getLower() {
+        return Math.max(0, centre() - getHalfWidth());
+    }
+
+
+    /**
+     * @return The upper end of the 95% Wilson interval.
+     */
+    public double getUpper() {
+        return Math.min(1, centre() + getHalfWidth());
+    }
+
+
+    @Override
+    public String toString() {
+        return String.format("%.4f [%.4f, %.4f] (n=%d)", getRate(), getLower(), getUpper(), trials);
+    }
+}
@@ -1,21 +1,29 @@
 package cits3001_2021;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A Java class for an agent to play in Resistance.
+ * The moves are made by the shared STRATEGY, and each agent only keeps its random stream
+ * and the number of players, so one strategy can play any number of games at once.
  * @author Tim French
  * **/
 
 
-public class RandomAgent implements Agent{
+public class RandomAgent extends StrategyAgent<RandomAgent.State> implements MaskAgent{
 
-  private String name;
-  private Random random;
-  private static int agentCount;
-  private int players;//number of players
-  private int roundsC;
-  private int roundsL;
+  /** The strategy every RandomAgent plays; it has no mutable fields. **/
+  public static final Strategy STRATEGY = new Strategy();
+  private static final AtomicInteger agentCount = new AtomicInteger();
+
+  /**
+   * What a RandomAgent needs to know about its game.
+   * **/
+  public static final class State {
+    private SplittableRandom random = new SplittableRandom();
+    private int players;//number of players
+  }
 
 
   /**
@@ -23,123 +31,95 @@ public class RandomAgent implements Agent{
    *@param name, the name given to the agent and used on the scoreboard.
    **/
   public RandomAgent(String name){
-    random = new Random();
-    this.name = name;
+    super(name, STRATEGY);
   }
 
   /**
    * returns an instance of this agent for testing.
-   * The progam should allocate the agent's name, 
+   * The progam should allocate the agent's name,
    * and can use a counter to ensure no two agents have the same name.
    * @return an instance of the agent.
    * **/
   public static Agent init(){
-    switch(agentCount++){
+    int count = agentCount.getAndIncrement();
+    switch(count){
       case 0: return new RandomAgent("Rando-the-1st");
       case 1: return new RandomAgent("Rando-the 2nd");
       case 2: return new RandomAgent("Rando-the-3rd");
-      default: return new RandomAgent("Rando-the-"+agentCount+"th");
+      default: return new RandomAgent("Rando-the-"+(count+1)+"th");
     }
   }
 
-  /**
-   * gets the name of the agent
-   * @return the agent's name.
-   * **/
-  public String getName(){return name;}
-
-  /**
-   * Initialises a new game. 
-   * The agent should drop their current gameState and reinitialise all their game variables.
-   * @param numPlayers the number of players in the game.
-   * @param playerIndex the players index in the game.
-   * @param spies, the index of all the spies in the game, if this agent is a spy (i.e. playerIndex is an element of spies)
-   * **/
-  public void newGame(int numPlayers, int playerIndex, int[] spies){
-    players = numPlayers;
-  }
-      
-  /**
-   * This method is called when the agent is required to lead (propose) a mission
-   * @param teamSize the number of agents to go on the mission
-   * @param failsRequired the number of agent fails required for the mission to fail
-   * @return an array of player indexes, the proposed mission.
-   * **/
-  public int[] proposeMission(int teamSize, int failsRequired){
-    int[] team = new int[teamSize];
-    boolean[] in = new boolean[players];
-    for(int i = 0; i<teamSize; i++){
-      int member = random.nextInt(players);
-      while(in[member])
-        member = random.nextInt(players);
-      team[i] = member;
-      in[member]=true;  
-    }
-    return team;  
+  public int proposeMissionMask(int teamSize, int failsRequired){
+    return STRATEGY.proposeMissionMask(getState(), teamSize, failsRequired);
   }
 
-  /**
-   * This method is called when an agent is required to vote on whether a mission should proceed
-   * @param mission the array of agent indexes who will be going on the mission.
-   * @param leader the index of the agent who proposed the mission.
-   * @return true is this agent votes that the mission should go ahead, false otherwise.
-   * **/
-  public boolean vote(int[] mission, int leader){ return random.nextDouble()<0.5; }
+  public boolean voteMask(int team, int leader){ return STRATEGY.voteMask(getState(), team, leader); }
+
+  public boolean betrayMask(int team, int leader){ return STRATEGY.betrayMask(getState(), team, leader); }
+
 
   /**
-   * The method is called on an agent to inform them of the outcome of a vote, 
-   * and which agent voted for or against the mission.
-   * @param mission the array of agent indexes represent the mission team
-   * @param leader the agent index of the leader, who proposed the mission
-   * @param votes an array of booleans such that votes[i] is true if and only if agent i voted for the mission to go ahead.
+   * How a RandomAgent plays, for any State.
+   * Teams are worked out as bitmasks, and the array methods are built on them.
    * **/
-  public void voteOutcome(int[] mission, int leader, boolean[] votes){
-    //do nothing. Random doesn't care.
-    return;
-  }
+  public static final class Strategy implements AgentStrategy<State>{
+
+    private Strategy(){}
+
+    public State newState(){ return new State(); }
+
+    /**
+     * Initialises a new game.
+     * The agent should drop their current gameState and reinitialise all their game variables.
+     * @param numPlayers the number of players in the game.
+     * @param playerIndex the players index in the game.
+     * @param spies, the index of all the spies in the game, if this agent is a spy (i.e. playerIndex is an element of spies)
+     * @param random the random stream split from the game's seed for this agent, or null to keep its own.
+     * **/
+    public void newGame(State state, int numPlayers, int playerIndex, int[] spies, SplittableRandom random){
+      if(random != null) state.random = random;
+      state.players = numPlayers;
+    }
 
-  /**
-  * This method is called on an agent who has a choice to betray (fail) the mission
-  * @param mission the array of agent indexes representing the mission team
-  * @param leader the agent who proposed the mission
-  * @return true is the agent choses to betray (fail) the mission
-  * **/
-  public boolean betray(int[] mission, int leader){ return random.nextDouble()<0.5; }
+    /**
+     * This method is called when the agent is required to lead (propose) a mission
+     * @param teamSize the number of agents to go on the mission
+     * @param failsRequired the number of agent fails required for the mission to fail
+     * @return the proposed mission as a bitmask of player indexes.
+     * **/
+    public int proposeMissionMask(State state, int teamSize, int failsRequired){
+      return TeamSampler.team(state.players, teamSize, state.random);
+    }
 
-  /**
-  * Informs all agents of the outcome of the mission, including the number of agents who failed the mission.
-  * @param mission the array of agent indexes representing the mission team
-  * @param leader the agent who proposed the mission
-  * @param numFails the number of agent's who failed the mission
-  * @param missionSuccess true if and only if the mission succeeded.
-  * **/
-  public void missionOutcome(int[] mission, int leader, int numFails, boolean missionSuccess){
-    //random doesn't care
-    return;
-  }
+    /**
+     * This method is called when an agent is required to vote on whether a mission should proceed
+     * @param team the bitmask of agents who will be going on the mission.
+     * @param leader the index of the agent who proposed the mission.
+     * @return true is this agent votes that the mission should go ahead, false otherwise.
+     * **/
+    public boolean voteMask(State state, int team, int leader){ return state.random.nextDouble()<0.5; }
+
+    /**
+    * This method is called on an agent who has a choice to betray (fail) the mission
+    * @param team the bitmask of agents on the mission team
+    * @param leader the agent who proposed the mission
+    * @return true is the agent choses to betray (fail) the mission
+    * **/
+    public boolean betrayMask(State state, int team, int leader){ return state.random.nextDouble()<0.5; }
+
+    public int[] proposeMission(State state, int teamsize, int failsRequired){
+      return Bits.toArray(proposeMissionMask(state, teamsize, failsRequired));
+    }
 
-  /**
-  * Informs all agents of the game state at the end of the round
-  * @param roundsComplete the number of rounds played so far
-  * @param roundsLost the number of rounds lost so far
-  * **/
-  public void roundOutcome(int roundsComplete, int roundsLost){
-    return;
-  }
-    
+    public boolean vote(State state, int[] mission, int leader){
+      return voteMask(state, Bits.mask(mission), leader);
+    }
 
-  /**
-  * Informs all agents of the outcome of the game, including the identity of the spies.
-  * @param roundsLost the number of rounds the Resistance lost
-  * @param spies an array with the indexes of all the spies in the game.
-  * **/
-  public void gameOutcome(int roundsLost, int[] spies){
-    //random doesn't care
-    return;
-  }
+    public boolean betray(State state, int[] mission, int leader){
+      return betrayMask(state, Bits.mask(mission), leader);
+    }
 
-  @Override
-  public int[] getSuspectedSpies() {
-    return new int[0];
+    //The outcomes are left to the defaults: random doesn't care.
   }
 }
@@ -0,0 +1,83 @@
+package cits3001_2021;
+
+/**
+ * The mean and variance of a stream of values, updated one value at a time with Welford's method so that no values
+ * need to be kept and no precision is lost to subtracting large sums. Stats of different streams can be merged, e.g.
+ * those kept by different threads.
+ */
+public class RunningStats {
+
+    /** Normal quantile of a two-sided 95% confidence interval. */
+    public static final double Z95 = 1.959963984540054;
+
+    private long count;
+    private double mean;
+    private double m2; //Sum of squared differences from the mean
+
+
+    /**
+     * Adds a value.
+     */
+    public void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+    }
+
+
+    /**
+     * Adds every value of another stream into this one (Chan et al.'s pairwise update).
+     * @param other Stats of a different stream.
+     * @return These stats.
+     */
+    public RunningStats merge(RunningStats other) {
+        if (other.count == 0) return this;
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / total;
+        m2 += other.m2 + delta * delta * count * other.count / total;
+        count = total;
+        return this;
+    }
+
+
+    public long getCount() {
+        return count;
+    }
+
+
+    public double getMean() {
+        return mean;
+    }
+
+
+    /**
+     * @return The sample variance, or 0 with fewer than 2 values.
+     */
+    public double getVariance() {
+        return count < 2 ? 0 : m2 / (count - 1);
+    }
+
+
+    /**
+     * @return The variance of the mean, i.e. the square of its standard error.
+     */
+    public double getVarianceOfMean() {
+        return count == 0 ? 0 : getVariance() / count;
+    }
+
+
+    /**
+     * @return Half the width of the 95% confidence interval of the mean.
+     */
+    public double getHalfWidth() {
+        return Z95 * Math.sqrt(getVarianceOfMean());
+    }
+
+
+    @Override
+    public String toString() {
+        return String.format("%.4f +- %.4f (n=%d)", mean, getHalfWidth(), count);
+    }
+}
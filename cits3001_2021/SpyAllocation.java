@@ -0,0 +1,184 @@
+package cits3001_2021;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Chooses the spies of a game once the players are seated. Every allocation draws at most one random number per spy,
+ * picking each spy among the players still eligible, so it never has to redraw and never spins when most players are
+ * excluded; if too few players can be spies it throws instead.
+ *
+ * Game excludes Baerule by default, as the experiment only studies how well it identifies spies. enumerate goes
+ * through every possible seating of the spies in turn by the index of the game in its batch, so a batch whose size is
+ * a multiple of the number of seatings plays each one equally often instead of leaving that to chance.
+ */
+@FunctionalInterface
+public interface SpyAllocation {
+
+    /**
+     * Chooses the spies.
+     * @param players  The players in their seats.
+     * @param numSpies The number of spies in the game.
+     * @param random   The game's random stream.
+     * @return The spies as a bitmask, with exactly numSpies players.
+     */
+    int allocate(Agent[] players, int numSpies, SplittableRandom random);
+
+
+    /**
+     * Chooses the spies of a game that is one of a batch. Only allocations that go through the seatings in turn use
+     * the index; the others choose as allocate does.
+     * @param players  The players in their seats.
+     * @param numSpies The number of spies in the game.
+     * @param random   The game's random stream.
+     * @param game     The index of the game in its batch, from 0.
+     * @return The spies as a bitmask, with exactly numSpies players.
+     */
+    default int allocate(Agent[] players, int numSpies, SplittableRandom random, long game) {
+        return allocate(players, numSpies, random);
+    }
+
+
+    /**
+     * Finds the players this allocation can make spies, e.g. to go through every seating of the spies it could choose.
+     * @param players The players in their seats.
+     * @return The players that can be spies, as a bitmask; every player unless the allocation says otherwise.
+     */
+    default int eligible(Agent[] players) {
+        return Bits.all(players.length);
+    }
+
+
+    /**
+     * @return An allocation where every player is equally likely to be a spy.
+     */
+    static SpyAllocation uniform() {
+        return (players, numSpies, random) -> sample(Bits.all(players.length), numSpies, random);
+    }
+
+
+    /**
+     * Makes agents of the given types always play resistance, and chooses the spies uniformly among the rest. An agent
+     * hosted by a DeadlineAgent is checked by the type of the agent it wraps.
+     * @param types Classes (or interfaces) of the agents that are never spies.
+     * @return The allocation.
+     */
+    static SpyAllocation excluding(Class<?>... types) {
+        Class<?>[] excluded = types.clone();
+        return new SpyAllocation() {
+            @Override
+            public int allocate(Agent[] players, int numSpies, SplittableRandom random) {
+                return sample(eligible(players), numSpies, random);
+            }
+
+            @Override
+            public int eligible(Agent[] players) {
+                int eligible = Bits.all(players.length);
+                for (int i = 0; i < players.length; i++) {
+                    Agent agent = players[i] instanceof DeadlineAgent hosted ? hosted.getAgent() : players[i];
+                    for (Class<?> type : excluded) {
+                        if (type.isInstance(agent)) eligible &= ~(1 << i);
+                    }
+                }
+                return eligible;
+            }
+        };
+    }
+
+
+    /**
+     * Always makes the same seats spies, whoever sits in them.
+     * @param spies The spies as a bitmask.
+     * @return The allocation.
+     */
+    static SpyAllocation fixed(int spies) {
+        return new SpyAllocation() {
+            @Override
+            public int allocate(Agent[] players, int numSpies, SplittableRandom random) {
+                if (Integer.bitCount(spies) != numSpies || spies >>> players.length != 0) {
+                    throw new IllegalArgumentException("Not a seating of " + numSpies + " spies among "
+                            + players.length + " players: " + Integer.toBinaryString(spies));
+                }
+                return spies;
+            }
+
+            @Override
+            public int eligible(Agent[] players) {
+                return spies;
+            }
+        };
+    }
+
+
+    /**
+     * Goes through every seating of the spies among the eligible players in ascending order of their bitmasks, starting
+     * again after the last one: game i of a batch gets seating i modulo their number. The seating only depends on the
+     * game's index, so batches replay the same way on any number of threads, and a game replays from its seed and
+     * index. The seatings are worked out once for each set of eligible players.
+     * @param types Classes (or interfaces) of the agents that are never spies, as in excluding.
+     * @return The allocation; without an index, every game gets the first seating.
+     */
+    static SpyAllocation enumerate(Class<?>... types) {
+        SpyAllocation excluding = excluding(types);
+        Map<Integer, int[]> tables = new ConcurrentHashMap<>(); //Seatings of each number of players, spies and eligible
+        return new SpyAllocation() {
+            @Override
+            public int allocate(Agent[] players, int numSpies, SplittableRandom random) {
+                return allocate(players, numSpies, random, 0);
+            }
+
+            @Override
+            public int allocate(Agent[] players, int numSpies, SplittableRandom random, long game) {
+                int eligible = eligible(players);
+                int[] seatings = tables.computeIfAbsent(players.length << 14 | numSpies << 10 | eligible,
+                        key -> Arrays.stream(seatings(players.length, numSpies))
+                                .filter(seating -> (seating & ~eligible) == 0).toArray());
+                if (seatings.length == 0) throw new IllegalArgumentException("Too few agents can be spies");
+                return seatings[(int) Long.remainderUnsigned(game, seatings.length)];
+            }
+
+            @Override
+            public int eligible(Agent[] players) {
+                return excluding.eligible(players);
+            }
+        };
+    }
+
+
+    /**
+     * Lists every way of seating the spies, in ascending order of their bitmasks.
+     * @param numPlayers The number of players.
+     * @param numSpies   The number of spies.
+     * @return The bitmask of every seating; there are numPlayers choose numSpies of them.
+     */
+    static int[] seatings(int numPlayers, int numSpies) {
+        int count = 1;
+        for (int i = 0; i < numSpies; i++) count = count * (numPlayers - i) / (i + 1);
+        int[] seatings = new int[count];
+        int seating = (1 << numSpies) - 1;
+        seatings[0] = seating;
+        for (int i = 1; i < count; i++) {
+            int lowest = seating & -seating; //Gosper's hack: the next larger mask with the same number of bits
+            int ripple = seating + lowest;
+            seating = (((ripple ^ seating) >>> 2) / lowest) | ripple;
+            seatings[i] = seating;
+        }
+        return seatings;
+    }
+
+
+    /**
+     * Picks spies uniformly among the eligible players with TeamSampler, drawing one number per spy: each draw picks
+     * one of the players that are still eligible and removes it, as a partial Fisher-Yates shuffle of them would.
+     * @param eligible The players that can be spies, as a bitmask.
+     * @param numSpies The number of spies to pick.
+     * @param random   The random stream to draw from.
+     * @return The spies as a bitmask.
+     */
+    static int sample(int eligible, int numSpies, SplittableRandom random) {
+        if (Integer.bitCount(eligible) < numSpies) throw new IllegalArgumentException("Too few agents can be spies");
+        return TeamSampler.sample(eligible, numSpies, random);
+    }
+}
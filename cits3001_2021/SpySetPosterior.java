@@ -0,0 +1,173 @@
+package cits3001_2021;
+
+import java.util.SplittableRandom;
+
+/**
+ * The probability of every possible set of spies in a game, as seen by a resistance member. Every set of spies that
+ * does not contain the agent itself is stored as a bitmask together with its probability; there are at most
+ * C(9, 4) = 126 of them in a 10 player game, so the whole posterior is two small arrays.
+ *
+ * Every set starts equally likely. After a mission, each set is weighted by the chance of seeing that many fails if it
+ * were the spies: every spy on the team is taken to betray independently with the given probability, and the
+ * resistance never fails a mission, so a set with k spies on the team gives Binomial(k, betrayChance) fails. A set
+ * with fewer spies on the team than there were fails drops to 0.
+ *
+ * The marginal probability of each player being a spy is summed from the sets when it is read after an update.
+ */
+public class SpySetPosterior {
+
+    private int[] sets = new int[0]; //sets[i] is the bitmask of the players in spy set i
+    private double[] probs = new double[0]; //probs[i] is the probability that set i is the spies
+    private final double[] marginals = new double[10];
+    private final double[] likelihood = new double[11];
+    private int size;
+    private int numPlayers;
+    private int numSpies;
+    private boolean dirty;
+
+
+    /**
+     * Creates the posterior for a new game.
+     * @param numPlayers The number of players in the game.
+     * @param numSpies   The number of spies in the game.
+     * @param self       The id of the agent, which is known not to be a spy.
+     */
+    public SpySetPosterior(int numPlayers, int numSpies, int self) {
+        reset(numPlayers, numSpies, self);
+    }
+
+
+    /**
+     * Starts a new game with every set of spies equally likely, reusing the arrays when they are big enough.
+     * @param numPlayers The number of players in the game.
+     * @param numSpies   The number of spies in the game.
+     * @param self       The id of the agent, which is known not to be a spy.
+     */
+    public void reset(int numPlayers, int numSpies, int self) {
+        this.numPlayers = numPlayers;
+        this.numSpies = numSpies;
+        int capacity = (int) binomial(numPlayers - 1, numSpies);
+        if (sets.length < capacity) {
+            sets = new int[capacity];
+            probs = new double[capacity];
+        }
+
+        //Walk through every bitmask with numSpies bits set in increasing order
+        size = 0;
+        for (int set = (1 << numSpies) - 1; set < 1 << numPlayers; set = nextSet(set)) {
+            if ((set & 1 << self) == 0) sets[size++] = set;
+        }
+        for (int i = 0; i < size; i++) probs[i] = 1.0 / size;
+        dirty = true;
+    }
+
+
+    /**
+     * Gosper's hack: the next larger integer with the same number of bits set.
+     */
+    private static int nextSet(int set) {
+        int lowest = set & -set;
+        int ripple = set + lowest;
+        return (((ripple ^ set) >>> 2) / lowest) | ripple;
+    }
+
+
+    private static double binomial(int n, int k) {
+        double c = 1;
+        for (int i = 0; i < k; i++) c = c * (n - i) / (i + 1);
+        return Math.rint(c);
+    }
+
+
+    /**
+     * Updates the posterior with the outcome of a mission.
+     * @param mission      The players that went on the mission.
+     * @param numFails     The number of fails played on the mission.
+     * @param betrayChance The probability that a spy on the team fails it.
+     */
+    public void missionOutcome(int[] mission, int numFails, double betrayChance) {
+        missionOutcome(Bits.mask(mission), numFails, betrayChance);
+    }
+
+
+    /**
+     * Updates the posterior with the outcome of a mission.
+     * @param team         The players that went on the mission, as a bitmask.
+     * @param numFails     The number of fails played on the mission.
+     * @param betrayChance The probability that a spy on the team fails it.
+     */
+    public void missionOutcome(int team, int numFails, double betrayChance) {
+        //likelihood[k] is the chance of numFails fails with k spies on the team
+        for (int k = 0; k <= Integer.bitCount(team); k++) {
+            likelihood[k] = numFails > k ? 0.0 : binomial(k, numFails)
+                    * Math.pow(betrayChance, numFails) * Math.pow(1 - betrayChance, k - numFails);
+        }
+
+        double total = 0;
+        for (int i = 0; i < size; i++) total += probs[i] * likelihood[Integer.bitCount(sets[i] & team)];
+        if (total == 0) return; //No set of spies explains the outcome, so it is ignored
+
+        for (int i = 0; i < size; i++) probs[i] = probs[i] * likelihood[Integer.bitCount(sets[i] & team)] / total;
+        dirty = true;
+    }
+
+
+    /**
+     * @return The probability that the player is a spy; 0 for the agent itself.
+     */
+    public double getMarginal(int player) {
+        if (dirty) sumMarginals();
+        return marginals[player];
+    }
+
+
+    /**
+     * @return The probability of each other player being a spy before anything is known.
+     */
+    public double getPrior() {
+        return (double) numSpies / (numPlayers - 1);
+    }
+
+
+    /**
+     * @return The number of spy sets that are still possible.
+     */
+    public int getPossibleSets() {
+        int possible = 0;
+        for (int i = 0; i < size; i++) if (probs[i] > 0) possible++;
+        return possible;
+    }
+
+
+    /**
+     * Draws a set of spies, each set with its probability. Only reads the posterior, so several threads can sample
+     * from it at once as long as it is not updated meanwhile.
+     * @param random The stream to draw from.
+     * @return The spies as a bitmask.
+     */
+    public int sample(SplittableRandom random) {
+        double r = random.nextDouble();
+        int last = 0;
+        for (int i = 0; i < size; i++) {
+            if (probs[i] == 0) continue;
+            r -= probs[i];
+            last = sets[i];
+            if (r < 0) break;
+        }
+        return last;
+    }
+
+
+    /**
+     * Adds up the probability of every set each player is in.
+     */
+    private void sumMarginals() {
+        for (int p = 0; p < numPlayers; p++) marginals[p] = 0.0;
+        for (int i = 0; i < size; i++) {
+            for (int set = sets[i]; set != 0; set &= set - 1) {
+                marginals[Integer.numberOfTrailingZeros(set)] += probs[i];
+            }
+        }
+        dirty = false;
+    }
+}
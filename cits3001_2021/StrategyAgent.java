@@ -0,0 +1,99 @@
+package cits3001_2021;
+
+import java.util.SplittableRandom;
+
+/**
+ * An agent made of a shared strategy and a state of its own. Every call is handed to the strategy together with the
+ * agent's state, so creating an agent only costs its state, and all agents of the same kind share one strategy.
+ *
+ * Baerule, BasicRebel, Agent_22511218 and RandomAgent extend this class with their own strategy, so they can still be
+ * told apart by class; a strategy can also be given a seat directly with new StrategyAgent<>(name, strategy).
+ *
+ * @param <S> The per-game state of the strategy.
+ */
+public class StrategyAgent<S> implements Agent {
+
+    private final String name;
+    private final AgentStrategy<S> strategy;
+    private final S state;
+
+
+    /**
+     * Creates an agent with a fresh state.
+     * @param name     The name of the agent.
+     * @param strategy The strategy that makes the agent's decisions.
+     */
+    public StrategyAgent(String name, AgentStrategy<S> strategy) {
+        this.name = name;
+        this.strategy = strategy;
+        state = strategy.newState();
+    }
+
+
+    public AgentStrategy<S> getStrategy() {
+        return strategy;
+    }
+
+
+    /**
+     * @return The state the strategy keeps for this agent.
+     */
+    public S getState() {
+        return state;
+    }
+
+
+    public String getName() {
+        return name;
+    }
+
+
+    public void newGame(int numPlayers, int playerIndex, int[] spies) {
+        strategy.newGame(state, numPlayers, playerIndex, spies, null);
+    }
+
+
+    public void newGame(int numPlayers, int playerIndex, int[] spies, SplittableRandom random) {
+        strategy.newGame(state, numPlayers, playerIndex, spies, random);
+    }
+
+
+    public int[] proposeMission(int teamsize, int failsRequired) {
+        return strategy.proposeMission(state, teamsize, failsRequired);
+    }
+
+
+    public boolean vote(int[] mission, int leader) {
+        return strategy.vote(state, mission, leader);
+    }
+
+
+    public void voteOutcome(int[] mission, int leader, boolean[] votes) {
+        strategy.voteOutcome(state, mission, leader, votes);
+    }
+
+
+    public boolean betray(int[] mission, int leader) {
+        return strategy.betray(state, mission, leader);
+    }
+
+
+    public void missionOutcome(int[] mission, int leader, int numFails, boolean missionSuccess) {
+        strategy.missionOutcome(state, mission, leader, numFails, missionSuccess);
+    }
+
+
+    public void roundOutcome(int roundsComplete, int roundsLost) {
+        strategy.roundOutcome(state, roundsComplete, roundsLost);
+    }
+
+
+    public void gameOutcome(int roundsLost, int[] spies) {
+        strategy.gameOutcome(state, roundsLost, spies);
+    }
+
+
+    public int[] getSuspectedSpies() {
+        return strategy.getSuspectedSpies(state);
+    }
+}
@@ -0,0 +1,124 @@
+package cits3001_2021;
+
+/**
+ * Stores the suspicion value of every player in a game, except the agent itself, in a primitive array indexed by the
+ * player's id, together with the players ranked from least to most suspicious.
+ *
+ * The ranking is only re-sorted when it is read after a value has changed, and it is sorted from the previous ranking
+ * with a stable insertion sort, so players with equal suspicion keep the order they had before. This is the order the
+ * agents got when they sorted their player arrays in place, and since the ranking is nearly sorted already the sort is
+ * close to linear. Reading the k most suspicious players is then O(k).
+ */
+public class SuspicionTable {
+
+    private double[] values; //values[i] is the suspicion value of player i
+    private int[] ranking; //The other players, least suspicious first
+    private int numPlayers;
+    private int self;
+    private boolean dirty;
+
+
+    /**
+     * Creates a table for a new game with every suspicion value at 0.
+     * @param numPlayers The number of players in the game.
+     * @param self       The id of the agent that owns the table, which is left out of the ranking.
+     */
+    public SuspicionTable(int numPlayers, int self) {
+        reset(numPlayers, self);
+    }
+
+
+    /**
+     * Clears the table for a new game, reusing the arrays when they are big enough.
+     * @param numPlayers The number of players in the game.
+     * @param self       The id of the agent that owns the table.
+     */
+    public void reset(int numPlayers, int self) {
+        if (values == null || values.length < numPlayers) {
+            values = new double[numPlayers];
+            ranking = new int[numPlayers - 1];
+        }
+        this.numPlayers = numPlayers;
+        this.self = self;
+        int index = 0;
+        for (int i = 0; i < numPlayers; i++) {
+            values[i] = 0.0;
+            if (i != self) ranking[index++] = i;
+        }
+        dirty = false;
+    }
+
+
+    /**
+     * @return The suspicion value of the player.
+     */
+    public double get(int player) {
+        return values[player];
+    }
+
+
+    /**
+     * Sets the suspicion value of a player; the agent's own value is never stored.
+     */
+    public void set(int player, double value) {
+        if (player == self || values[player] == value) return;
+        values[player] = value;
+        dirty = true;
+    }
+
+
+    /**
+     * Adds to the suspicion value of a player.
+     */
+    public void add(int player, double amount) {
+        set(player, values[player] + amount);
+    }
+
+
+    /**
+     * @return The number of players ranked, which is every player but the agent.
+     */
+    public int size() {
+        return numPlayers - 1;
+    }
+
+
+    /**
+     * Gets a player by their place in the ranking.
+     * @param rank 0 for the least suspicious player, up to size() - 1 for the most suspicious.
+     * @return The id of the player.
+     */
+    public int getRanked(int rank) {
+        if (dirty) sort();
+        return ranking[rank];
+    }
+
+
+    /**
+     * Gets one of the most suspicious players.
+     * @param k 0 for the most suspicious player, 1 for the next one and so on.
+     * @return The id of the player.
+     */
+    public int getSuspect(int k) {
+        return getRanked(numPlayers - 2 - k);
+    }
+
+
+    /**
+     * Sorts the ranking in ascending order of suspicion values, keeping the previous order of equal values.
+     */
+    private void sort() {
+        for (int i = 1; i < numPlayers - 1; i++) {
+            int id = ranking[i];
+            double key = values[id];
+            int j = i - 1;
+
+            while (j >= 0 && values[ranking[j]] > key) {
+                ranking[j + 1] = ranking[j];
+                j -= 1;
+            }
+            ranking[j + 1] = id;
+        }
+        dirty = false;
+    }
+}
@@ -0,0 +1,84 @@
+package cits3001_2021;
+
+import java.util.SplittableRandom;
+
+/**
+ * Draws teams uniformly at random without rejection. Each member is drawn from the players still left in the pool, a
+ * partial Fisher-Yates shuffle of the pool kept as a bitmask: one random number picks the k-th player left, which is
+ * found in a table of every 10 player pool, and that player leaves the pool. A team of size s then takes exactly s
+ * random numbers and no allocation, however many players are already taken, where drawing players until an unused one
+ * comes up takes more draws the fuller the team gets.
+ *
+ * Used by RandomAgent (and so the backup moves of Game and DeadlineAgent), the spy proposals of BasicRebel and
+ * Agent_22511218, SpyAllocation, MonteCarloAgent's rollouts, and the random players of PackedBatch and LockstepBatch.
+ */
+public final class TeamSampler {
+
+    private TeamSampler() {}
+
+    //SELECT[pool << 4 | k] is the k-th lowest player in the pool, for every pool of up to 10 players
+    private static final byte[] SELECT = new byte[1024 << 4];
+
+    static {
+        for (int pool = 0; pool < 1024; pool++) {
+            int k = 0;
+            for (int left = pool; left != 0; left &= left - 1) {
+                SELECT[pool << 4 | k++] = (byte) Integer.numberOfTrailingZeros(left);
+            }
+        }
+    }
+
+
+    /**
+     * @param pool A set of players, as a bitmask of up to 10 players.
+     * @param k    From 0 to the number of players in the pool - 1.
+     * @return The k-th lowest player in the pool.
+     */
+    public static int select(int pool, int k) {
+        return SELECT[pool << 4 | k];
+    }
+
+
+    /**
+     * Draws a team uniformly among the players of a pool.
+     * @param pool   The players that can be drawn, as a bitmask of up to 10 players.
+     * @param size   The number of players to draw, at most the size of the pool.
+     * @param random The random stream to draw from; exactly size numbers are drawn.
+     * @return The players drawn, as a bitmask.
+     */
+    public static int sample(int pool, int size, SplittableRandom random) {
+        int team = 0;
+        int left = Integer.bitCount(pool);
+        for (int i = 0; i < size; i++, left--) {
+            int player = 1 << select(pool, random.nextInt(left));
+            team |= player;
+            pool &= ~player;
+        }
+        return team;
+    }
+
+
+    /**
+     * Draws a team uniformly among every player of a game.
+     * @param numPlayers The number of players in the game.
+     * @param size       The size of the team.
+     * @param random     The random stream to draw from.
+     * @return The team as a bitmask.
+     */
+    public static int team(int numPlayers, int size, SplittableRandom random) {
+        return sample(Bits.all(numPlayers), size, random);
+    }
+
+
+    /**
+     * Fills a team up to its size with players drawn uniformly among those not on it yet.
+     * @param team       The players already on the team, as a bitmask.
+     * @param numPlayers The number of players in the game.
+     * @param size       The size of the full team.
+     * @param random     The random stream to draw from.
+     * @return The full team as a bitmask.
+     */
+    public static int fill(int team, int numPlayers, int size, SplittableRandom random) {
+        return team | sample(Bits.all(numPlayers) & ~team, size - Integer.bitCount(team), random);
+    }
+}
@@ -0,0 +1,337 @@
+package cits3001_2021;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Plays batches of games in parallel. A batch is split in half recursively on a fork-join pool until each task only
+ * has a small shard of games left, which it plays on its own thread with its own histograms. The histograms are then
+ * merged on the way back up, so no two threads ever write to the same counters.
+ *
+ * Every game gets a fresh line-up from the supplier, so the agents are never shared between threads. The seed of each
+ * game only depends on the batch seed and the game's index in the batch, so a batch gives the same results no matter
+ * how many threads play it.
+ *
+ * runConcurrent plays the games a different way, for agents that block: every game and every agent call gets a
+ * thread of its own, virtual if the JVM has them, so games waiting on their agents do not hold up the others.
+ */
+public class Tournament {
+
+    //Number of games a single task plays before it stops splitting; keeps the task overhead small
+    private static final int SHARD = 250;
+
+    private final ForkJoinPool pool;
+    private GameTrace trace;
+    private AgentTimer timer;
+    private SpyAllocation spyAllocation = SpyAllocation.excluding(Baerule.class);
+
+
+    /**
+     * Creates a tournament that uses every core available.
+     */
+    public Tournament() {
+        this(ForkJoinPool.commonPool());
+    }
+
+
+    /**
+     * Creates a tournament on the given pool.
+     * @param pool The pool the games are played on.
+     */
+    public Tournament(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+
+    /**
+     * Records every game played from now on in the given trace.
+     * @param trace The trace the games are appended to, or null to stop tracing.
+     */
+    public void setTrace(GameTrace trace) {
+        this.trace = trace;
+    }
+
+
+    /**
+     * Times every agent call from now on, with the budgets of the given timer. Each result then holds the merged
+     * latencies of its games.
+     * @param timer Timer whose budgets are used, or null to stop timing.
+     */
+    public void setTimer(AgentTimer timer) {
+        this.timer = timer;
+    }
+
+
+    /**
+     * Sets how the spies of the games played from now on are chosen, see Game.setSpyAllocation. The allocation is
+     * shared by every thread.
+     * @param spyAllocation The allocation to use; by default Baerule is never a spy.
+     */
+    public void setSpyAllocation(SpyAllocation spyAllocation) {
+        this.spyAllocation = spyAllocation;
+    }
+
+
+    /**
+     * Plays the given number of games and collects how many spies Baerule and BasicRebel identified in each.
+     * @param lineUp Creates the agents for a single game.
+     * @param games  Number of games to play.
+     * @return The merged results of every game.
+     */
+    public Result run(Supplier<Agent[]> lineUp, int games) {
+        return run(lineUp, games, new SplittableRandom().nextLong());
+    }
+
+
+    /**
+     * Plays the given number of games from a batch seed, so the whole batch can be reproduced.
+     * @param lineUp Creates the agents for a single game.
+     * @param games  Number of games to play.
+     * @param seed   Seed of the batch; game i is played from gameSeed(seed, i).
+     * @return The merged results of every game.
+     */
+    public Result run(Supplier<Agent[]> lineUp, int games, long seed) {
+        return pool.invoke(new Batch(lineUp, trace, timer, spyAllocation, seed, 0, games));
+    }
+
+
+    /**
+     * Plays the given number of games at once, each on its own thread, with every agent wrapped in a DeadlineAgent so
+     * each of its calls also runs on its own thread and has a deadline. Agents that wait (for a time-budgeted search,
+     * or anything external) then overlap instead of queueing behind each other on the pool's threads. Each game
+     * replays the same way from its seed, benched agents included; since each DeadlineAgent splits its backup's random
+     * stream from its agent's, agents that draw random numbers play differently than in run with the same seed. Calls
+     * are not timed with the timer.
+     * @param lineUp        Creates the agents for a single game.
+     * @param games         Number of games to play.
+     * @param seed          Seed of the batch; game i is played from gameSeed(seed, i).
+     * @param deadlineNanos How long each agent call may take before the agent is benched for the rest of its game.
+     * @param inFlight      Most games played at once; tens of thousands with virtual threads, far fewer without.
+     * @return The merged results of every game.
+     * @throws RuntimeException      If a game threw, once every other game is over; its cause is the first failure
+     *                               and the others are suppressed.
+     * @throws CancellationException If the thread was interrupted before every game was over; the games still in play
+     *                               are interrupted and the interrupt flag is set again.
+     */
+    public Result runConcurrent(Supplier<Agent[]> lineUp, int games, long seed, long deadlineNanos, int inFlight) {
+        SpyAllocation spyAllocation = this.spyAllocation;
+        ExecutorService executor = VirtualThreads.newExecutor();
+        Semaphore slots = new Semaphore(inFlight);
+        Result total = new Result();
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        try {
+            for (int i = 0; i < games; i++) {
+                slots.acquire();
+                long gameSeed = gameSeed(seed, i);
+                int index = i;
+                executor.execute(() -> {
+                    try {
+                        Agent[] agents = lineUp.get();
+                        DeadlineAgent[] hosted = new DeadlineAgent[agents.length];
+                        for (int a = 0; a < agents.length; a++) {
+                            hosted[a] = new DeadlineAgent(agents[a], executor, deadlineNanos);
+                        }
+                        Game game = new Game(agents.length);
+                        game.setTrace(trace);
+                        game.setSpyAllocation(spyAllocation);
+                        GameStats stats = new GameStats();
+                        game.setListener(stats);
+                        game.play(hosted, gameSeed, index);
+
+                        boolean benched = false;
+                        for (DeadlineAgent agent : hosted) benched |= agent.isBenched();
+                        synchronized (total) {
+                            total.record(game);
+                            total.stats.merge(stats);
+                            if (benched) total.benched++;
+                        }
+                    } catch (RuntimeException | Error e) {
+                        RuntimeException failed = new RuntimeException("Game " + index + " of the batch failed", e);
+                        if (!failure.compareAndSet(null, failed)) failure.get().addSuppressed(e);
+                    } finally {
+                        slots.release();
+                    }
+                });
+            }
+            slots.acquire(inFlight); //Every slot is free again once the last game is over
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+            throw new CancellationException("Interrupted with games of the batch still in play");
+        } finally {
+            executor.shutdown();
+        }
+        if (failure.get() != null) throw failure.get();
+        return total;
+    }
+
+
+    /**
+     * Gets the seed of a single game in a batch, used to replay that game on its own.
+     * @param seed  Seed of the batch.
+     * @param index Index of the game in the batch.
+     * @return The seed the game is played from.
+     */
+    public static long gameSeed(long seed, long index) {
+        //SplitMix64 finaliser, so neighbouring games get unrelated seeds
+        long z = seed + (index + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+
+    /**
+     * The number of times each agent identified 0, 1 or 2 spies over a set of games.
+     */
+    public static class Result {
+        private final int[] baerule = new int[3];
+        private final int[] basicRebel = new int[3];
+        private int games;
+        private int benched;
+        private AgentTimer timer;
+        private final GameStats stats = new GameStats();
+
+        /**
+         * Helper function to get the index the number should be added.
+         * @param spiesIdentified How many spies the agent has identified in a game.
+         * @return The index that the number should be incremented.
+         * */
+        private static int getIndex(int spiesIdentified){
+            return switch (spiesIdentified){
+                case 2 -> 2;
+                case 1 -> 1;
+                default -> 0;
+            };
+        }
+
+        /**
+         * Adds the outcome of a finished game.
+         * @param game The game that has been played.
+         */
+        void record(Game game) {
+            baerule[getIndex(game.determinedSpies(true))]++;
+            basicRebel[getIndex(game.determinedSpies(false))]++;
+            games++;
+        }
+
+        /**
+         * Adds the counts of another result into this one.
+         * @param other Result of a different set of games.
+         * @return This result.
+         */
+        Result merge(Result other) {
+            for (int i = 0; i < 3; i++) {
+                baerule[i] += other.baerule[i];
+                basicRebel[i] += other.basicRebel[i];
+            }
+            games += other.games;
+            benched += other.benched;
+            stats.merge(other.stats);
+            if (timer == null) timer = other.timer;
+            else if (other.timer != null) timer.add(other.timer);
+            return this;
+        }
+
+        /**
+         * @return 3 size array that contains the total number of 0, 1, 2 spies identified by Baerule.
+         */
+        public int[] getBaerule() {
+            return baerule.clone();
+        }
+
+        /**
+         * @return 3 size array that contains the total number of 0, 1, 2 spies identified by BasicRebel.
+         */
+        public int[] getBasicRebel() {
+            return basicRebel.clone();
+        }
+
+        /**
+         * @return The latencies of every agent call, or null if the tournament was not timed.
+         */
+        public AgentTimer getTimer() {
+            return timer;
+        }
+
+        /**
+         * @return Win rates, identification rates and round fail rates of every game, with their intervals.
+         */
+        public GameStats getStats() {
+            return stats;
+        }
+
+        /**
+         * @return The number of games recorded.
+         */
+        public int getGames() {
+            return games;
+        }
+
+        /**
+         * @return The number of games where an agent missed a deadline, with runConcurrent.
+         */
+        public int getBenched() {
+            return benched;
+        }
+    }
+
+
+    /**
+     * Plays the games from index from (inclusive) to index to (exclusive), splitting while there are too many.
+     */
+    private static class Batch extends RecursiveTask<Result> {
+        private static final long serialVersionUID = 1L;
+        private final Supplier<Agent[]> lineUp;
+        private final GameTrace trace;
+        private final AgentTimer timer;
+        private final SpyAllocation spyAllocation;
+        private final long seed;
+        private final int from;
+        private final int to;
+
+        Batch(Supplier<Agent[]> lineUp, GameTrace trace, AgentTimer timer, SpyAllocation spyAllocation, long seed,
+              int from, int to) {
+            this.lineUp = lineUp;
+            this.trace = trace;
+            this.timer = timer;
+            this.spyAllocation = spyAllocation;
+            this.seed = seed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Result compute() {
+            if (to - from <= SHARD) {
+                Result result = new Result();
+                result.timer = timer == null ? null : timer.emptyCopy();
+                Game arena = null; //Reused for every game in the shard
+                for (int i = from; i < to; i++) {
+                    Agent[] agents = lineUp.get();
+                    if (arena == null) {
+                        arena = new Game(agents.length);
+                        arena.setTrace(trace);
+                        arena.setTimer(result.timer);
+                        arena.setSpyAllocation(spyAllocation);
+                        arena.setListener(result.stats);
+                    }
+                    arena.play(agents, gameSeed(seed, i), i);
+                    result.record(arena);
+                }
+                return result;
+            }
+            int mid = (from + to) >>> 1;
+            Batch left = new Batch(lineUp, trace, timer, spyAllocation, seed, from, mid);
+            left.fork();
+            Result right = new Batch(lineUp, trace, timer, spyAllocation, seed, mid, to).compute();
+            return left.join().merge(right);
+        }
+    }
+}
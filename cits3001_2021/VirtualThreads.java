@@ -0,0 +1,48 @@
+package cits3001_2021;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates executors that start a new thread for every task, using virtual threads when the JVM has them (Java 21 and
+ * later) so that tens of thousands of blocked tasks cost little more than their stacks. The project is built for an
+ * older Java, so the virtual thread executor is looked up by reflection; on a JVM without it the executor falls back
+ * to a cached pool of daemon platform threads, which behaves the same but is only suited to hundreds of blocked tasks.
+ */
+public final class VirtualThreads {
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    private VirtualThreads() {}
+
+
+    /**
+     * @return True iff this JVM supports virtual threads.
+     */
+    public static boolean isAvailable() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+
+    /**
+     * Creates an executor that runs every task on its own thread; shut it down once it is no longer needed.
+     * @return An executor of virtual threads, or of daemon platform threads if virtual threads are not available.
+     */
+    public static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "agent-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}